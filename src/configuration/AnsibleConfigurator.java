@@ -4,12 +4,24 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class AnsibleConfigurator {
 	private File mainDirectory;
 	private String hostIP;
 	private String testingType;
 	private String username;
+	private List<String> hostIPs;
+	private boolean performanceProfile;
+	private String architecture;
+	private static final String[] SOURCE_FILES = { "AdditionalServerClass.h", "commonServerMethods.h",
+			"DiscoveryServerClass.h", "PublisherServerClass.h", "ReadServerClass.h", "WriteServerClass.h",
+			"server_key.der", "server_cert.der", "MainServer.c", "EncryptionServerClass.h",
+			"MonitoredItemsServerClass.h", "NetworkingServerClass.h", "open62541.c", "open62541.h" };
 	public AnsibleConfigurator(String username,String hostIP, String ansiblePath,String testingType) {
 		this.username = username;
 		mainDirectory = new File(ansiblePath);
@@ -18,10 +30,24 @@ public class AnsibleConfigurator {
 		
 	}
 
+	public void setHostIPs(List<String> hostIPs) {
+		this.hostIPs = hostIPs;
+	}
+
+	public void setPerformanceProfile(boolean performanceProfile) {
+		this.performanceProfile = performanceProfile;
+	}
+
+	public void setArchitecture(String architecture) {
+		this.architecture = architecture;
+	}
+
 	public void startConfiguration() {
 		changeHostsFile();
 		changeTasksFile();
 		changeTargetsFile();
+		if (performanceProfile)
+			changeAnsibleConfigFile();
 	}
 
 	private void changeHostsFile() {
@@ -45,6 +71,75 @@ public class AnsibleConfigurator {
 	
 	
 
+	/*
+	 * Merges the performance settings into ansible.cfg and keeps every other
+	 * setting of an existing file: pipelining and ControlPersist reuse one SSH
+	 * connection for all tasks, and facts are gathered once and cached.
+	 */
+	private void changeAnsibleConfigFile() {
+		Map<String, Map<String, String>> settings = new LinkedHashMap<>();
+		Map<String, String> defaults = new LinkedHashMap<>();
+		defaults.put("gathering", "smart");
+		defaults.put("fact_caching", "jsonfile");
+		defaults.put("fact_caching_connection", ".ansible_fact_cache");
+		defaults.put("fact_caching_timeout", "86400");
+		settings.put("defaults", defaults);
+		Map<String, String> sshConnection = new LinkedHashMap<>();
+		sshConnection.put("pipelining", "True");
+		sshConnection.put("ssh_args", "-o ControlMaster=auto -o ControlPersist=600s");
+		settings.put("ssh_connection", sshConnection);
+
+		File file = new File(mainDirectory.getAbsolutePath() + File.separator + "ansible.cfg");
+		try {
+			List<String> lines = file.exists() ? Files.readAllLines(file.toPath()) : new ArrayList<String>();
+			if (!file.exists())
+				defaults.put("inventory", "hosts");
+			List<String> merged = new ArrayList<>();
+			String section = null;
+			for (String line : lines) {
+				String trimmed = line.trim();
+				if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+					appendRemainingSettings(merged, settings.remove(section));
+					section = trimmed.substring(1, trimmed.length() - 1).trim();
+					merged.add(line);
+					continue;
+				}
+				int separator = trimmed.indexOf('=');
+				if (section != null && settings.containsKey(section) && separator > 0 && !trimmed.startsWith("#")
+						&& !trimmed.startsWith(";")) {
+					String key = trimmed.substring(0, separator).trim();
+					String value = settings.get(section).remove(key);
+					if (value != null) {
+						merged.add(key + " = " + value);
+						continue;
+					}
+				}
+				merged.add(line);
+			}
+			appendRemainingSettings(merged, settings.remove(section));
+			for (Map.Entry<String, Map<String, String>> entry : settings.entrySet()) {
+				if (!merged.isEmpty())
+					merged.add("");
+				merged.add("[" + entry.getKey() + "]");
+				appendRemainingSettings(merged, entry.getValue());
+			}
+			Files.write(file.toPath(), merged);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void appendRemainingSettings(List<String> lines, Map<String, String> remaining) {
+		if (remaining == null)
+			return;
+		int position = lines.size();
+		while (position > 0 && lines.get(position - 1).trim().isEmpty())
+			position--;
+		for (Map.Entry<String, String> entry : remaining.entrySet())
+			lines.add(position++, entry.getKey() + " = " + entry.getValue());
+		remaining.clear();
+	}
+
 	private File[] getFileFromDirectory(File directory,String fileName) {
 		File[] matchingFiles = directory.listFiles(new FilenameFilter() {
 			public boolean accept(File dir, String name) {
@@ -72,7 +167,7 @@ public class AnsibleConfigurator {
 		
 		switch(fileType) {
 		case "Hosts":
-			text = "[targets]\n" + "\n" + hostIP;
+			text = "[targets]\n" + "\n" + (hostIPs == null ? hostIP : String.join("\n", hostIPs));
 			break;
 		
 		case "Targets":
@@ -80,7 +175,13 @@ public class AnsibleConfigurator {
 			break;
 		
 		case "Tasks":
-			text = initialTasksText()+checklibmbedtlsText()+installlibmbedtlsText()+selectiveTasksText()+buildServerText("MainServer.c")+portText()+runServerText("MainServer.c");
+			File serverBinary = null;
+			if (architecture != null)
+				serverBinary = new ServerBinaryCache().getServerBinary(architecture, new File(directory.getParentFile(), "files"), SOURCE_FILES, "MainServer.c", false);
+			if (serverBinary != null)
+				text = initialTasksText()+checklibmbedtlsText()+installlibmbedtlsText()+prebuiltServerText(serverBinary, "MainServer.c")+portText()+runServerText("MainServer.c");
+			else
+				text = initialTasksText()+checklibmbedtlsText()+installlibmbedtlsText()+selectiveTasksText()+buildServerText("MainServer.c")+portText()+runServerText("MainServer.c");
 			break;
 		}
 		try {
@@ -123,6 +224,15 @@ public class AnsibleConfigurator {
 	
 	
 	private String selectiveTasksText() {
+		if (performanceProfile && isInstalled("rsync"))
+			return synchronizeTasksText() + copyTasksText("rsync_check.rc != 0");
+		return copyTasksText(null);
+	}
+
+	private String copyTasksText(String condition) {
+		StringBuilder items = new StringBuilder();
+		for (String sourceFile : SOURCE_FILES)
+			items.append("    - ").append(sourceFile).append("\n");
 		return 
 				 "\n"
 				+ "# https://open62541.org/releases/b916bd0611.zip\n"
@@ -132,24 +242,74 @@ public class AnsibleConfigurator {
 				+ "    dest: '/etc/opcua/{{ item }}'\n"
 				+ "    owner: '{{ ansible_user }}'\n"
 				+ "  with_items:\n" 
-				+ "    - AdditionalServerClass.h\n"+
-				"    - commonServerMethods.h\n"+	
-				"    - DiscoveryServerClass.h\n"+
-				"    - PublisherServerClass.h\n"+
-				"    - ReadServerClass.h\n"+
-				"    - WriteServerClass.h\n"+
-				"    - server_key.der\n"+
-				"    - server_cert.der\n"+
-				"    - MainServer.c\n" + 
-				"    - EncryptionServerClass.h\n"+
-				"    - MonitoredItemsServerClass.h\n"+
-				"    - NetworkingServerClass.h\n"+
-				"    - open62541.c\n" + 
-				"    - open62541.h\n" + 
+				+ items
+				+ (condition != null ? "  when: " + condition + "\n" : "") + 
 				"\n";							
 				
 		
 	}
+
+	private static boolean isInstalled(String command) {
+		try {
+			return new ProcessBuilder("sh", "-c", "command -v " + command).start().waitFor() == 0;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+	
+	/*
+	 * Only used when rsync is installed here; devices without rsync, like
+	 * the OpenWrt boards, get the copy task instead. rsync reuses the SSH
+	 * master connection of the profile, so password logins work as well.
+	 */
+	private String synchronizeTasksText() {
+		StringBuilder includes = new StringBuilder();
+		for (String sourceFile : SOURCE_FILES)
+			includes.append("      - \"--include=").append(sourceFile).append("\"\n");
+		return 
+				 "\n"
+				+ "- name: Check that rsync is installed on the device\n"
+				+ "  shell: command -v rsync\n"
+				+ "  register: rsync_check\n"
+				+ "  ignore_errors: yes\n"
+				+ "  changed_when: false\n"
+				+ "\n"
+				+ "# https://open62541.org/releases/b916bd0611.zip\n"
+				+ "- name: Synchronize changed files extracted from the release https://open62541.org/releases/b916bd0611.zip \n"
+				+ "  synchronize:\n" 
+				+ "    src: '{{ role_path }}/files/'\n" 
+				+ "    dest: /etc/opcua/\n"
+				+ "    checksum: yes\n"
+				+ "    archive: no\n"
+				+ "    recursive: yes\n"
+				+ "    use_ssh_args: yes\n"
+				+ "    rsync_opts:\n" 
+				+ includes
+				+ "      - \"--exclude=*\"\n"
+				+ "  when: rsync_check.rc == 0\n"
+				+ "\n";
+	}
+	private String prebuiltServerText(File serverBinary, String fileName) {
+		String rawName = fileName.substring(0, fileName.indexOf("."));
+		return 
+				 "\n"
+				+ "- name: Copy server certificates\n"
+				+ "  copy:\n" 
+				+ "    src: '{{ item }}'\n" 
+				+ "    dest: '/etc/opcua/{{ item }}'\n"
+				+ "    owner: '{{ ansible_user }}'\n"
+				+ "  with_items:\n" 
+				+ "    - server_key.der\n"
+				+ "    - server_cert.der\n"
+				+ "\n"
+				+ "- name: Copy " + rawName + " cross compiled on the host for " + architecture + "\n"
+				+ "  copy:\n" 
+				+ "    src: '" + serverBinary.getAbsolutePath() + "'\n" 
+				+ "    dest: '/etc/opcua/" + rawName + "'\n"
+				+ "    owner: '{{ ansible_user }}'\n"
+				+ "    mode: 0755\n"
+				+ "\n";
+	}
 	private String buildServerText(String fileName) {
 		String rawName = fileName.substring(0, fileName.indexOf("."));
 		return 
@@ -1,4 +1,7 @@
 package configuration;
+
+import java.util.List;
+
 public class ConfigurationMaker {
 	
 
@@ -12,6 +15,22 @@ public class ConfigurationMaker {
 		ansibleConfiguration = new AnsibleConfigurator(username,hostIP,ansiblePath,testingType);				
 	}
 	
+	public void setHostIPs(List<String> hostIPs) {
+		ansibleConfiguration.setHostIPs(hostIPs);
+	}
+	
+	public void setNativeEngine(boolean nativeEngine) {
+		dockerConfiguration.setNativeEngine(nativeEngine);
+	}
+	
+	public void setPerformanceProfile(boolean performanceProfile) {
+		ansibleConfiguration.setPerformanceProfile(performanceProfile);
+	}
+	
+	public void setArchitecture(String architecture) {
+		ansibleConfiguration.setArchitecture(architecture);
+	}
+	
 	public boolean startConfiguration() {
 		ansibleConfiguration.startConfiguration();
 		dockerConfiguration.startConfiguration();
@@ -8,6 +8,7 @@ import java.io.FilenameFilter;
 public class DockerConfigurator {
 	private File directory;
 	private String testingType;
+	private boolean nativeEngine;
 	//private String hostIP;
 
 	public DockerConfigurator(String username,String hostIP, String dockerPath,String testingType) {
@@ -16,8 +17,14 @@ public class DockerConfigurator {
 		//this.hostIP = hostIP;
 	}
 
+	public void setNativeEngine(boolean nativeEngine) {
+		this.nativeEngine = nativeEngine;
+	}
+
 	public void startConfiguration() {
 		createDockerFile();
+		if (nativeEngine)
+			createDockerIgnoreFile();
 
 	}
 
@@ -27,6 +34,16 @@ public class DockerConfigurator {
 
 	}
 
+	private void createDockerIgnoreFile() {
+		try {
+			BufferedWriter output = new BufferedWriter(new FileWriter(new File(directory.getAbsolutePath() + "//" + ".dockerignore")));
+			output.write("*.log\n");
+			output.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	private File[] getFileFromDirectory(String fileName) {
 		File[] matchingFiles = directory.listFiles(new FilenameFilter() {
 			public boolean accept(File dir, String name) {
@@ -90,6 +107,9 @@ public class DockerConfigurator {
 		
 		}
 
+		if (nativeEngine)
+			text = nativeDockerfileText();
+
 		try {
 
 			BufferedWriter output = new BufferedWriter(new FileWriter(file));
@@ -101,6 +121,19 @@ public class DockerConfigurator {
 		}
 	}
 
+	/*
+	 * The open62541 stack is compiled in its own layer before the rest of the
+	 * directory is added, so changing the client only rebuilds the last layer.
+	 */
+	private String nativeDockerfileText() {
+		return "FROM ubuntu:xenial\n" + "RUN apt-get update && apt-get install -y gcc g++ libmbedtls-dev\n"
+				+ "WORKDIR /tests\n"
+				+ "ADD open62541.c open62541.h /tests/\n"
+				+ "RUN gcc -std=c99 -D_POSIX_C_SOURCE=199309L -c open62541.c -o open62541.o\n"
+				+ "ADD . /tests\n"
+				+ "RUN gcc -std=c99 -D_POSIX_C_SOURCE=199309L open62541.o MainClient.c -lmbedtls -lmbedx509 -lmbedcrypto -lm -o MainClient\n";
+	}
+
 }
 
 
@@ -0,0 +1,201 @@
+package configuration;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross compiles MainServer on the host once per (architecture, source hash,
+ * compiler flags) and keeps the binary in the user's cache directory, so the
+ * generated playbook can push a ready binary instead of running gcc on the
+ * device. Whenever no binary can be provided the server is compiled on the
+ * device as before. A build that failed is remembered next to where its
+ * binary would be, so it is not tried again for the same sources and flags;
+ * remove the .failed file (see build.log) to retry. The mbedtls libraries for
+ * the target have to be found by the cross compiler, e.g. through
+ * -Dopcua.crosscompiler.sysroot.<architecture>=...
+ */
+public class ServerBinaryCache {
+	private static final String COMPILE_FLAGS = "-std=c99 -D_POSIX_C_SOURCE=199309L";
+	private static final String LINK_FLAGS = "-lmbedtls -lmbedx509 -lmbedcrypto -lm";
+	private static final Map<String, Future<File>> builds = new HashMap<>();
+	private static final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "server-cross-compile");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private File cacheDirectory;
+
+	public ServerBinaryCache() {
+		cacheDirectory = new File(System.getProperty("user.home") + File.separator + "opc-ua-deployment-tool-cache"
+				+ File.separator + "server-binaries");
+	}
+
+	/*
+	 * Returns the cached binary, or null when there is none yet. In that case
+	 * the binary is cross compiled in the background (or right away when
+	 * waitForBuild is set) and used from the next configuration on.
+	 */
+	public File getServerBinary(String architecture, File sourceDirectory, String[] sourceFiles, String mainFile,
+			boolean waitForBuild) {
+		String compiler = getCrossCompiler(architecture);
+		if (compiler == null)
+			return null;
+		String flags = getArchitectureFlags(architecture);
+		try {
+			String sourceHash = hashSources(sourceDirectory, sourceFiles);
+			String flagsHash = hash((compiler + " " + flags + " " + COMPILE_FLAGS + " " + LINK_FLAGS)
+					.getBytes(StandardCharsets.UTF_8)).substring(0, 12);
+			File binaryDirectory = new File(cacheDirectory, architecture + File.separator + sourceHash.substring(0, 16)
+					+ "-" + flagsHash);
+			File binary = new File(binaryDirectory, mainFile.substring(0, mainFile.indexOf(".")));
+			File failedMarker = new File(binaryDirectory, binary.getName() + ".failed");
+			if (binary.isFile())
+				return binary;
+			if (failedMarker.isFile())
+				return null;
+
+			Future<File> build;
+			synchronized (builds) {
+				build = builds.get(binary.getAbsolutePath());
+				if (build == null) {
+					build = buildExecutor.submit(new Callable<File>() {
+						public File call() throws Exception {
+							try {
+								File compiled = compile(compiler, flags, sourceDirectory, mainFile, binary);
+								if (compiled == null)
+									failedMarker.createNewFile();
+								return compiled;
+							} catch (Exception e) {
+								failedMarker.createNewFile();
+								throw e;
+							} finally {
+								synchronized (builds) {
+									builds.remove(binary.getAbsolutePath());
+								}
+							}
+						}
+					});
+					builds.put(binary.getAbsolutePath(), build);
+				}
+			}
+			return waitForBuild ? build.get() : null;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private File compile(String compiler, String flags, File sourceDirectory, String mainFile, File binary)
+			throws Exception {
+		File binaryDirectory = binary.getParentFile();
+		binaryDirectory.mkdirs();
+		File temporaryBinary = new File(binaryDirectory, binary.getName() + ".tmp");
+		List<String> command = new ArrayList<>();
+		command.add(compiler);
+		command.addAll(Arrays.asList(flags.split(" ")));
+		command.addAll(Arrays.asList(COMPILE_FLAGS.split(" ")));
+		command.add("open62541.c");
+		command.add(mainFile);
+		command.addAll(Arrays.asList(LINK_FLAGS.split(" ")));
+		command.add("-o");
+		command.add(temporaryBinary.getAbsolutePath());
+		command.removeIf(String::isEmpty);
+
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.directory(sourceDirectory);
+		pb.redirectErrorStream(true);
+		pb.redirectOutput(new File(binaryDirectory, "build.log"));
+		Process process = pb.start();
+		if (!process.waitFor(30, TimeUnit.MINUTES)) {
+			process.destroyForcibly();
+			return null;
+		}
+		if (process.exitValue() != 0 || !temporaryBinary.isFile())
+			return null;
+		Files.move(temporaryBinary.toPath(), binary.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		return binary;
+	}
+
+	/*
+	 * Architectures as reported by "uname -m" on the device. A compiler can be
+	 * configured per architecture with -Dopcua.crosscompiler.<architecture>=...
+	 * There is no default for armv6l: the common arm-linux-gnueabihf
+	 * toolchains emit armv7 code, so such devices build on the device unless
+	 * an armv6 toolchain is configured.
+	 */
+	private String getCrossCompiler(String architecture) {
+		if (architecture == null || architecture.isEmpty())
+			return null;
+		String configured = System.getProperty("opcua.crosscompiler." + architecture);
+		if (configured != null)
+			return configured;
+		switch (architecture) {
+		case "x86_64":
+			return "x86_64-linux-gnu-gcc";
+		case "aarch64":
+			return "aarch64-linux-gnu-gcc";
+		case "armv7l":
+			return "arm-linux-gnueabihf-gcc";
+		case "mips":
+			return "mipsel-openwrt-linux-gcc";
+		default:
+			return null;
+		}
+	}
+
+	private String getArchitectureFlags(String architecture) {
+		String flags = "armv6l".equals(architecture) ? "-march=armv6 -mfpu=vfp -mfloat-abi=hard" : "";
+		String sysroot = System.getProperty("opcua.crosscompiler.sysroot." + architecture);
+		if (sysroot != null)
+			flags = (flags + " --sysroot=" + sysroot).trim();
+		return flags;
+	}
+
+	private String hashSources(File sourceDirectory, String[] sourceFiles) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		byte[] buffer = new byte[64 * 1024];
+		for (String sourceFile : sourceFiles) {
+			File file = new File(sourceDirectory, sourceFile);
+			if (!file.isFile())
+				continue;
+			digest.update(sourceFile.getBytes(StandardCharsets.UTF_8));
+			try (InputStream inStream = new FileInputStream(file)) {
+				int read;
+				while ((read = inStream.read(buffer)) != -1)
+					digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private String hash(byte[] bytes) throws Exception {
+		return toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+	}
+
+	private String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes)
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+}
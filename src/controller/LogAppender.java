@@ -0,0 +1,160 @@
+package controller;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+
+import userInterface.Gui;
+
+/**
+ * Collects output lines from any thread and appends them to one of the output
+ * areas in a single EDT update every opcua.log.flushInterval milliseconds.
+ * The area is capped at opcua.log.maxLines lines; the oldest lines are
+ * trimmed first. Without a display, e.g. from the command line, lines go
+ * straight to standard output.
+ */
+public class LogAppender {
+	private static LogAppender deployableAppender, nonDeployableAppender;
+	private static ScheduledExecutorService scheduler;
+
+	private boolean deployableOrNone;
+	private int maxLines;
+	private int flushInterval;
+	private ArrayDeque<String> pending;
+	private boolean flushScheduled;
+	private int pendingLines;
+	private long appendedEntries, appendedLines, flushes, droppedLines;
+
+	private LogAppender(boolean deployableOrNone) {
+		this.deployableOrNone = deployableOrNone;
+		maxLines = Integer.getInteger("opcua.log.maxLines", 5000);
+		flushInterval = Integer.getInteger("opcua.log.flushInterval", 50);
+		pending = new ArrayDeque<>();
+	}
+
+	public static synchronized LogAppender getInstance(boolean deployableOrNone) {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "log-appender");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		if (deployableOrNone) {
+			if (deployableAppender == null)
+				deployableAppender = new LogAppender(true);
+			return deployableAppender;
+		}
+		if (nonDeployableAppender == null)
+			nonDeployableAppender = new LogAppender(false);
+		return nonDeployableAppender;
+	}
+
+	public void append(String line) {
+		if (GraphicsEnvironment.isHeadless()) {
+			System.out.print(line);
+			return;
+		}
+		int lines = countLines(line);
+		synchronized (this) {
+			pending.add(line);
+			pendingLines += lines;
+			appendedEntries++;
+			appendedLines += lines;
+			while (pendingLines > maxLines && pending.size() > 1) {
+				int dropped = countLines(pending.poll());
+				pendingLines -= dropped;
+				droppedLines += dropped;
+			}
+			if (flushScheduled)
+				return;
+			flushScheduled = true;
+		}
+		scheduler.schedule(new Runnable() {
+			public void run() {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						flush();
+					}
+				});
+			}
+		}, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	private void flush() {
+		StringBuilder batch = new StringBuilder();
+		synchronized (this) {
+			for (String line : pending)
+				batch.append(line);
+			pending.clear();
+			pendingLines = 0;
+			flushScheduled = false;
+			flushes++;
+		}
+		JTextArea textArea = deployableOrNone ? Gui.deployableTextArea : Gui.nonDeployableTextArea;
+		if (textArea == null)
+			return;
+		textArea.append(batch.toString());
+		try {
+			// getLineCount() includes the empty line after a final line end
+			int lines = textArea.getLineCount();
+			int length = textArea.getDocument().getLength();
+			if (length > 0 && textArea.getText(length - 1, 1).equals("\n"))
+				lines--;
+			int excessLines = lines - maxLines;
+			if (excessLines > 0) {
+				textArea.replaceRange("", 0, textArea.getLineEndOffset(excessLines - 1));
+				synchronized (this) {
+					droppedLines += excessLines;
+				}
+			}
+		} catch (BadLocationException e) {
+			e.printStackTrace();
+		}
+		textArea.setToolTipText(getStatistics());
+	}
+
+	private static int countLines(String text) {
+		int lines = 0;
+		for (int i = 0; i < text.length(); i++)
+			if (text.charAt(i) == '\n')
+				lines++;
+		return lines;
+	}
+
+	public synchronized long getAppendedLines() {
+		return appendedLines;
+	}
+
+	public synchronized long getFlushes() {
+		return flushes;
+	}
+
+	/*
+	 * Appended entries that shared an update with an earlier entry. Entries
+	 * rather than lines, since an entry may hold no line end at all, e.g. a
+	 * chunk of docker build output.
+	 */
+	public synchronized long getCoalescedEntries() {
+		return appendedEntries - flushes;
+	}
+
+	public synchronized long getDroppedLines() {
+		return droppedLines;
+	}
+
+	public synchronized String getStatistics() {
+		return appendedLines + " lines in " + flushes + " updates, " + getCoalescedEntries() + " entries coalesced, "
+				+ droppedLines + " dropped";
+	}
+
+}
@@ -1,15 +1,32 @@
 package controller;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
 
 import configuration.ConfigurationMaker;
 import deployment.DeployerMaker;
+import deployment.DeviceTarget;
+import deployment.FleetDeployer;
+import deployment.MakefileDeployer;
+import deployment.MatrixDeployer;
+import deployment.ProcessPump;
 import merging.Merger;
+import reporting.LiveReporter;
 import reporting.ReportingMaker;
 
 public class MainController {
@@ -20,6 +37,19 @@ public class MainController {
 	private boolean deploymentType=false;
 	private Session session;
 	private String testingType,reportType;
+	private static final ExecutorService deploymentExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "deployment");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private int maxConcurrentDeployments = Integer.getInteger("opcua.fleet.concurrency", 4);
+	/* The image cache only works with the native engine; execute.sh builds the client itself. */
+	private boolean nativeDockerEngine = Boolean.parseBoolean(System.getProperty("opcua.docker.native", "true"));
+	private boolean fastAnsibleProfile = Boolean.getBoolean("opcua.ansible.fast");
+	private boolean crossCompileServer = Boolean.getBoolean("opcua.server.crosscompile");
+	private boolean liveReporting = LiveReporter.isEnabled();
 
 
 	public MainController() {
@@ -38,6 +68,24 @@ public class MainController {
 	public File getMakeFilePath() {
 		return makeFilePath;
 	}
+	public int getMaxConcurrentDeployments() {
+		return maxConcurrentDeployments;
+	}
+	public void setMaxConcurrentDeployments(int maxConcurrentDeployments) {
+		this.maxConcurrentDeployments = maxConcurrentDeployments;
+	}
+	public boolean isNativeDockerEngine() {
+		return nativeDockerEngine;
+	}
+	public void setNativeDockerEngine(boolean nativeDockerEngine) {
+		this.nativeDockerEngine = nativeDockerEngine;
+	}
+	public boolean isFastAnsibleProfile() {
+		return fastAnsibleProfile;
+	}
+	public void setFastAnsibleProfile(boolean fastAnsibleProfile) {
+		this.fastAnsibleProfile = fastAnsibleProfile;
+	}
 	public void setReportType(String reportType) {
 		this.reportType = reportType;
 	}
@@ -110,15 +158,18 @@ public class MainController {
 	}
 
 
+	public String getDeviceArchitecture() {
+		try {
+			return SessionPool.getInstance().execCommand(username, connectionAddress, password, "uname -m").trim();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
 	public boolean checkConnection() {
-		JSch jsch = new JSch();
 		try {
-			session = jsch.getSession(username, connectionAddress, 22);
-			java.util.Properties config = new java.util.Properties();
-			config.put("StrictHostKeyChecking", "no");
-			session.setConfig(config);
-			session.setPassword(password);
-			session.connect();
+			session = SessionPool.getInstance().getSession(username, connectionAddress, password);
 			connected = session.isConnected();
 
 		} catch (Exception e) {
@@ -185,21 +236,46 @@ public class MainController {
 
 
 	public boolean startConfiguration() {
+		return startConfiguration(nativeDockerEngine);
+	}
+
+	/*
+	 * Configuration can open an SSH session and writes all playbooks, so the
+	 * GUI runs it on the deployment executor.
+	 */
+	public CompletableFuture<Boolean> startConfigurationAsync() {
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>() {
+			public Boolean get() {
+				try {
+					return startConfiguration();
+				} catch (Exception e) {
+					e.printStackTrace();
+					return false;
+				}
+			}
+		}, deploymentExecutor);
+	}
+
+	private boolean startConfiguration(boolean nativeEngine) {
 
 		if (connected && hasAnsibleFile && hasDockerFile) {
 			ConfigurationMaker configurationMaker = new ConfigurationMaker(username, connectionAddress,
 					ansibleFilePath.getAbsolutePath(), dockerFilePath.getAbsolutePath(), testingType);			
+			configurationMaker.setNativeEngine(nativeEngine);
+			configurationMaker.setPerformanceProfile(fastAnsibleProfile);
+			if (crossCompileServer)
+				configurationMaker.setArchitecture(getDeviceArchitecture());
 			if (configurationMaker.startConfiguration())
 				return true;
 			else {
-				JOptionPane.showMessageDialog(null, "Error at Configuration", "Error", JOptionPane.ERROR_MESSAGE);
+				showError("Error at Configuration");
 				return false;
 			}
 
 		}
 
 		else {
-			JOptionPane.showMessageDialog(null, "Please check your credentials", "Error", JOptionPane.ERROR_MESSAGE);
+			showError("Please check your credentials");
 			return false;
 		}
 
@@ -207,11 +283,108 @@ public class MainController {
 
 
 
-	public void startDeployment(String selectedTestType) {
+	public CompletableFuture<Boolean> startDeployment(String selectedTestType) {
 		DeployerMaker deployermaker = new DeployerMaker(connectionAddress,password, ansibleFilePath.getAbsolutePath(),
 				dockerFilePath.getAbsolutePath(),selectedTestType,deploymentType,outputFilePath.getAbsolutePath());
-		deployermaker.startDeployment();
+		deployermaker.setNativeEngine(nativeDockerEngine);
+		LiveReporter liveReporter = liveReporting ? new LiveReporter(outputFilePath.getAbsolutePath(), deviceName,
+				reportType != null ? reportType : ".pdf") : null;
+		if (liveReporter != null)
+			deployermaker.addLineListener(new ProcessPump.LineListener() {
+				public void onLine(String line) {
+					liveReporter.onLine(line);
+				}
+			});
+		return CompletableFuture.supplyAsync(new Supplier<Boolean>() {
+			public Boolean get() {
+				boolean passed = deployermaker.startDeployment();
+				if (liveReporter != null)
+					liveReporter.finish();
+				retrieveServerLog();
+				return passed;
+			}
+		}, deploymentExecutor);
+
+	}
+
+	public CompletableFuture<Void> startRestrictedDeployment(MakefileDeployer makefileDeployer, String clientPath, String outputPath) {
+		return CompletableFuture.runAsync(new Runnable() {
+			public void run() {
+				makefileDeployer.startDeployment();
+				makefileDeployer.startTesting(clientPath, outputPath);
+			}
+		}, deploymentExecutor);
+	}
+
+	public void retrieveServerLog() {
+		if (!connected)
+			return;
+		try {
+			SessionPool.getInstance().download(username, connectionAddress, password, "/etc/opcua/log.txt",
+					new File(outputFilePath.getAbsolutePath() + File.separator + "opc_ua_automated_test_tool_server_log.txt"));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
 
+	/*
+	 * Fleets always use the native engine, see FleetDeployer.
+	 */
+	public CompletableFuture<Map<DeviceTarget, Boolean>> startFleetDeployment(List<DeviceTarget> targets, String selectedTestType) {
+		if (targets.isEmpty())
+			return CompletableFuture.completedFuture(new LinkedHashMap<DeviceTarget, Boolean>());
+		List<String> hostIPs = new ArrayList<>();
+		for (DeviceTarget target : targets)
+			hostIPs.add(target.getHostIP());
+		ConfigurationMaker configurationMaker = new ConfigurationMaker(username, hostIPs.get(0),
+				ansibleFilePath.getAbsolutePath(), dockerFilePath.getAbsolutePath(), selectedTestType);
+		configurationMaker.setHostIPs(hostIPs);
+		configurationMaker.setNativeEngine(true);
+		configurationMaker.setPerformanceProfile(fastAnsibleProfile);
+		if (!configurationMaker.startConfiguration())
+			return CompletableFuture.completedFuture(new LinkedHashMap<DeviceTarget, Boolean>());
+
+		FleetDeployer fleetDeployer = new FleetDeployer(targets, ansibleFilePath.getAbsolutePath(),
+				dockerFilePath.getAbsolutePath(), selectedTestType, deploymentType, outputFilePath.getAbsolutePath(),
+				maxConcurrentDeployments);
+		return CompletableFuture.supplyAsync(new Supplier<Map<DeviceTarget, Boolean>>() {
+			public Map<DeviceTarget, Boolean> get() {
+				return fleetDeployer.startDeployment();
+			}
+		}, deploymentExecutor);
+	}
+
+	/*
+	 * Like fleets, matrix runs always use the native engine, see
+	 * MatrixDeployer.
+	 */
+	public CompletableFuture<Map<String, Boolean>> startMatrixDeployment(Collection<String> testingTypes) {
+		MatrixDeployer matrixDeployer = new MatrixDeployer(username, connectionAddress, password,
+				ansibleFilePath.getAbsolutePath(), dockerFilePath.getAbsolutePath(), testingTypes, deploymentType,
+				outputFilePath.getAbsolutePath());
+		if (testingTypes.isEmpty())
+			return CompletableFuture.completedFuture(new LinkedHashMap<String, Boolean>());
+		setTestingType(MatrixDeployer.getServerTestingType(matrixDeployer.getSecurityGroups().get(0)));
+		if (!startConfiguration(true))
+			return CompletableFuture.completedFuture(new LinkedHashMap<String, Boolean>());
+		return CompletableFuture.supplyAsync(new Supplier<Map<String, Boolean>>() {
+			public Map<String, Boolean> get() {
+				Map<String, Boolean> results = matrixDeployer.startDeployment();
+				retrieveServerLog();
+				return results;
+			}
+		}, deploymentExecutor);
+	}
+
+	private void showError(String message) {
+		if (GraphicsEnvironment.isHeadless())
+			System.err.println(message);
+		else
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					JOptionPane.showMessageDialog(null, message, "Error", JOptionPane.ERROR_MESSAGE);
+				}
+			});
 	}
 
 	public void startReporting() {
@@ -219,9 +392,9 @@ public class MainController {
 		   reportingmaker.startReporting();
 
 	}
-	public void startMerging(String text, String text2, String text3) {
+	public void startMerging(List<String> files) {
 		Merger merger = new Merger();
-		merger.setFiles(text,text2,text3);
+		merger.setFiles(files);
 		merger.setPath(outputFilePath.getAbsolutePath());
 		merger.startMerging();
 		
@@ -3,15 +3,13 @@ package controller;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
-import javax.swing.SwingUtilities;
-
-import userInterface.Gui;
 
 public class ResultMaker {
 	private String outputFilePath;
 	private boolean deployableOrNone;
 	private BufferedWriter buffwriter;
 	private FileWriter writer;
+	private String deviceTag;
 
 	public ResultMaker() {
 		
@@ -20,11 +18,18 @@ public class ResultMaker {
 	public void setTextArea(boolean deployableOrNone) {
 		this.deployableOrNone = deployableOrNone;
 	}
+	public void setDeviceTag(String deviceTag) {
+		this.deviceTag = deviceTag;
+	}
 	public void setOutputPath(String outputFilePath) {
 		this.outputFilePath = outputFilePath;
 	}
 
 	public void createOutputFile() {
+		createOutputFile(false);
+	}
+
+	public void createOutputFile(boolean append) {
 		try {
 			File file = new File(outputFilePath+File.separator
 					+ "opc_ua_automated_test_tool_output.txt");
@@ -42,7 +47,7 @@ public class ResultMaker {
 					System.out.println("prompt for error");
 				}
 			}
-			writer = new FileWriter(outputFilePath+File.separator+ "opc_ua_automated_test_tool_raw.txt");
+			writer = new FileWriter(outputFilePath+File.separator+ "opc_ua_automated_test_tool_raw.txt", append);
 			buffwriter = new BufferedWriter(writer);
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -68,16 +73,9 @@ public class ResultMaker {
 		 	    }
 	}
 
-	public void appendToTextArea(String line) {
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				if (deployableOrNone)
-					Gui.deployableTextArea.append(line);
-				else
-					Gui.nonDeployableTextArea.append(line);
-			}
-
-		});
+	public void appendToTextArea(String text) {
+		String line = deviceTag == null ? text : "[" + deviceTag + "] " + text;
+		LogAppender.getInstance(deployableOrNone).append(line);
 	}
 
 }
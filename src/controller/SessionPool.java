@@ -0,0 +1,181 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Keeps one SSH session per user@host alive so that the connection check,
+ * command execution and file retrieval share a single handshake. Sessions are
+ * kept alive with SSH keep-alive messages and disconnected after they have
+ * been idle for opcua.ssh.idleTimeout milliseconds. Entries are only created,
+ * reserved and evicted inside compute calls of the map, so a session is never
+ * evicted between being looked up and being used.
+ */
+public class SessionPool {
+	private static SessionPool instance;
+
+	private JSch jsch;
+	private Map<String, PooledSession> sessions;
+	private ScheduledExecutorService evictor;
+	private long idleTimeout;
+	private int keepAliveInterval;
+
+	private static class PooledSession {
+		private Session session;
+		private String password;
+		private volatile long lastUsed = System.currentTimeMillis();
+		private AtomicInteger openChannels = new AtomicInteger();
+	}
+
+	private SessionPool() {
+		jsch = new JSch();
+		sessions = new ConcurrentHashMap<>();
+		idleTimeout = Long.getLong("opcua.ssh.idleTimeout", 5 * 60 * 1000L);
+		keepAliveInterval = Integer.getInteger("opcua.ssh.keepAliveInterval", 15 * 1000);
+		evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ssh-session-evictor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		evictor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				evictIdleSessions();
+			}
+		}, 30, 30, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				closeAll();
+			}
+		}));
+	}
+
+	public static synchronized SessionPool getInstance() {
+		if (instance == null)
+			instance = new SessionPool();
+		return instance;
+	}
+
+	/*
+	 * The entry for user@host, marked as used or with one more open channel.
+	 */
+	private PooledSession acquire(String username, String host, boolean openChannel) {
+		return sessions.compute(username + "@" + host, (key, pooled) -> {
+			if (pooled == null)
+				pooled = new PooledSession();
+			if (openChannel)
+				pooled.openChannels.incrementAndGet();
+			pooled.lastUsed = System.currentTimeMillis();
+			return pooled;
+		});
+	}
+
+	public Session getSession(String username, String host, String password) throws JSchException {
+		PooledSession pooled = acquire(username, host, false);
+		synchronized (pooled) {
+			if (pooled.session == null || !pooled.session.isConnected() || !password.equals(pooled.password)) {
+				if (pooled.session != null)
+					pooled.session.disconnect();
+				pooled.session = null;
+				Session session = jsch.getSession(username, host, 22);
+				java.util.Properties config = new java.util.Properties();
+				config.put("StrictHostKeyChecking", "no");
+				session.setConfig(config);
+				session.setPassword(password);
+				session.setServerAliveInterval(keepAliveInterval);
+				session.setServerAliveCountMax(3);
+				session.connect();
+				pooled.session = session;
+				pooled.password = password;
+			}
+			pooled.lastUsed = System.currentTimeMillis();
+			return pooled.session;
+		}
+	}
+
+	public String execCommand(String username, String host, String password, String command) throws Exception {
+		PooledSession pooled = acquire(username, host, true);
+		ChannelExec channel = null;
+		try {
+			channel = (ChannelExec) getSession(username, host, password).openChannel("exec");
+			channel.setCommand(command);
+			channel.setInputStream(null);
+			InputStream inStream = channel.getInputStream();
+			channel.connect();
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = inStream.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+			return output.toString("UTF-8");
+		} finally {
+			if (channel != null)
+				channel.disconnect();
+			pooled.lastUsed = System.currentTimeMillis();
+			pooled.openChannels.decrementAndGet();
+		}
+	}
+
+	public void download(String username, String host, String password, String remotePath, File localFile)
+			throws Exception {
+		PooledSession pooled = acquire(username, host, true);
+		ChannelSftp channel = null;
+		try {
+			channel = (ChannelSftp) getSession(username, host, password).openChannel("sftp");
+			channel.connect();
+			channel.get(remotePath, localFile.getAbsolutePath());
+		} finally {
+			if (channel != null)
+				channel.disconnect();
+			pooled.lastUsed = System.currentTimeMillis();
+			pooled.openChannels.decrementAndGet();
+		}
+	}
+
+	private void evictIdleSessions() {
+		long now = System.currentTimeMillis();
+		List<PooledSession> evicted = new ArrayList<>();
+		for (String key : sessions.keySet()) {
+			sessions.computeIfPresent(key, (k, pooled) -> {
+				if (pooled.openChannels.get() > 0 || now - pooled.lastUsed <= idleTimeout)
+					return pooled;
+				evicted.add(pooled);
+				return null;
+			});
+		}
+		for (PooledSession pooled : evicted) {
+			synchronized (pooled) {
+				if (pooled.session != null)
+					pooled.session.disconnect();
+			}
+		}
+	}
+
+	public void closeAll() {
+		for (PooledSession pooled : sessions.values()) {
+			synchronized (pooled) {
+				if (pooled.session != null)
+					pooled.session.disconnect();
+			}
+		}
+		sessions.clear();
+	}
+
+}
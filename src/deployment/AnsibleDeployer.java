@@ -1,12 +1,10 @@
 package deployment;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.concurrent.CompletableFuture;
 
 import controller.ResultMaker;
 
@@ -16,8 +14,8 @@ public class AnsibleDeployer {
 	private ProcessBuilder pb;
 	private Process process;
 	private ResultMaker resultMaker;
-	private String outputline;
 	private String password;
+	private String limitHost;
 	
 	
 	public  AnsibleDeployer(String ansiblePath,String password) {
@@ -29,8 +27,16 @@ public class AnsibleDeployer {
 	
 
 	
-	public void startDeployment() {
-		args = new String[5];
+	public void setLimitHost(String limitHost) {
+		this.limitHost = limitHost;
+	}
+
+	public void setDeviceTag(String deviceTag) {
+		resultMaker.setDeviceTag(deviceTag);
+	}
+
+	public boolean startDeployment() {
+		args = new String[limitHost == null ? 5 : 7];
 		 resultMaker.setTextArea(true);
 		resultMaker.appendToTextArea("---------------ANSIBLE---------------\n");
         try {
@@ -39,12 +45,21 @@ public class AnsibleDeployer {
         	args[2] = "--ask-pass";
         	args[3] = "--extra-vars";
         	args[4] = "ansible_become_pass="+password;
+        	if(limitHost != null) {
+        		args[5] = "--limit";
+        		args[6] = limitHost;
+        	}
         	pb = new ProcessBuilder(args);
         	pb.redirectErrorStream(true);
         	pb.directory(new File(ansiblePath));
-        	process = pb.start();
-        	InputStream errStream = process.getErrorStream();
-        	InputStream inStream = process.getInputStream();
+        	ProcessPump pump = new ProcessPump(pb);
+        	pump.addListener(new ProcessPump.LineListener() {
+        		public void onLine(String line) {
+        			resultMaker.appendToTextArea(line+"\n");
+        		}
+        	});
+        	CompletableFuture<Integer> exitCode = pump.start();
+        	process = pump.getProcess();
         	OutputStream outStream = process.getOutputStream();
         	
             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outStream));
@@ -52,19 +67,10 @@ public class AnsibleDeployer {
             writer.write(password);
             writer.flush();
             writer.close();
-            BufferedReader br = new BufferedReader(new InputStreamReader(inStream));
-            resultMaker.setTextArea(true);
-			while((outputline= br.readLine()) != null) {
-				
-				resultMaker.appendToTextArea(outputline+"\n");	
-			}
-			if(errStream!=null) {
-				BufferedReader errorReader = new BufferedReader(new InputStreamReader(errStream));
-				while((outputline = errorReader.readLine())!= null)
-					resultMaker.appendToTextArea(outputline+"\n");
-			}
+			return exitCode.get() == 0;
 		}catch(Exception e) {
 			e.printStackTrace();
+			return false;
 		}
 	}
 
@@ -3,19 +3,43 @@ package deployment;
 public class DeployerMaker {
 	private AnsibleDeployer ansibleDeployer;
 	private DockerDeployer dockerDeployer;
+	private String hostIP;
+
+
 
-	
-	
 	public DeployerMaker(String hostIP,String password,String ansiblePath,String dockerPath,String testingType,boolean deploymentType, String outputPath) {
+		this.hostIP = hostIP;
 		ansibleDeployer = new AnsibleDeployer(ansiblePath,password);
 		dockerDeployer = new DockerDeployer(hostIP,dockerPath,testingType,deploymentType,outputPath);
 	}
 
-	public void startDeployment() {
-		ansibleDeployer.startDeployment();
-		dockerDeployer.startDeployment();
+	public void setFleetMode(boolean fleetMode) {
+		if (fleetMode) {
+			ansibleDeployer.setLimitHost(hostIP);
+			ansibleDeployer.setDeviceTag(hostIP);
+			dockerDeployer.setLogFileName("logfile-" + hostIP + ".log");
+			dockerDeployer.setDeviceTag(hostIP);
+		}
+	}
+
+	public void setNativeEngine(boolean nativeEngine) {
+		dockerDeployer.setNativeEngine(nativeEngine);
+	}
+
+	public void setImageId(String imageId) {
+		dockerDeployer.setImageId(imageId);
 	}
-	
+
+	public void addLineListener(ProcessPump.LineListener listener) {
+		dockerDeployer.addLineListener(listener);
+	}
+
+	public boolean startDeployment() {
+		boolean ansiblePassed = ansibleDeployer.startDeployment();
+		boolean dockerPassed = dockerDeployer.startDeployment();
+		return ansiblePassed && dockerPassed;
+	}
+
 
 
 }
@@ -0,0 +1,25 @@
+package deployment;
+
+public class DeviceTarget {
+	private String hostIP;
+	private String password;
+
+	public DeviceTarget(String hostIP, String password) {
+		this.hostIP = hostIP;
+		this.password = password;
+	}
+
+	public String getHostIP() {
+		return hostIP;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	@Override
+	public String toString() {
+		return hostIP;
+	}
+
+}
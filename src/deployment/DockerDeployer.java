@@ -1,23 +1,24 @@
 package deployment;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.BuildImageCmd;
-//import com.github.dockerjava.api.command.CreateContainerResponse;
-//import com.github.dockerjava.api.command.ExecCreateCmdResponse;
-import com.github.dockerjava.api.command.ExecStartCmd;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.BuildResponseItem;
+import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientBuilder;
 import com.github.dockerjava.core.DockerClientConfig;
 import com.github.dockerjava.core.command.BuildImageResultCallback;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.github.dockerjava.core.command.LogContainerResultCallback;
+import com.github.dockerjava.core.command.WaitContainerResultCallback;
 
 import controller.ResultMaker;
 
@@ -27,11 +28,14 @@ public class DockerDeployer {
 	private String testingType;
 	private String outputPath;
 	private ResultMaker resultMaker;
-	private Process execute;
 	private ProcessBuilder pb;
-	private String outputline;
 	private String args[];
 	private boolean deploymentType;
+	private String logFileName = "logfile.log";
+	private boolean nativeEngine;
+	private boolean appendOutput;
+	private String imageId;
+	private List<ProcessPump.LineListener> lineListeners = new ArrayList<>();
 	public DockerDeployer(String hostIP,String dockerPath,String testingType,boolean deploymentType,String outputPath) {
 		this.hostIP = hostIP;
 		this.dockerPath = dockerPath;
@@ -41,7 +45,59 @@ public class DockerDeployer {
 		resultMaker =new ResultMaker();
 	}
 	
-	public void startDeployment() {
+	public void setLogFileName(String logFileName) {
+		this.logFileName = logFileName;
+	}
+
+	public void setDeviceTag(String deviceTag) {
+		resultMaker.setDeviceTag(deviceTag);
+	}
+
+	public void setAppendOutput(boolean appendOutput) {
+		this.appendOutput = appendOutput;
+	}
+
+	public void setNativeEngine(boolean nativeEngine) {
+		this.nativeEngine = nativeEngine;
+	}
+
+	/*
+	 * Runs an image that was built beforehand instead of building one; only
+	 * used by the native engine.
+	 */
+	public void setImageId(String imageId) {
+		this.imageId = imageId;
+	}
+
+	/*
+	 * Builds the client image, or finds it in the image cache, without
+	 * running it, so several deployments can share one build. Returns null
+	 * if the build failed.
+	 */
+	public String prepareImage() {
+		resultMaker.setTextArea(deploymentType);
+		try {
+			DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+			try (DockerClient dockerClient = DockerClientBuilder.getInstance(config).build()) {
+				return buildImage(dockerClient);
+			}
+		} catch (Exception e) {
+			resultMaker.appendToTextArea(e.getMessage() + "\n");
+			return null;
+		}
+	}
+
+	/*
+	 * Listeners get every client output line right after it was written to
+	 * the raw output file.
+	 */
+	public void addLineListener(ProcessPump.LineListener listener) {
+		lineListeners.add(listener);
+	}
+
+	public boolean startDeployment() {
+		if(nativeEngine)
+			return startNativeDeployment();
 		args = new String[7];
 
 		try {
@@ -49,65 +105,122 @@ public class DockerDeployer {
 			String[] testingParts = testingType.split(" ");
 			args[0]="sh";
 			args[1]="execute.sh";
-			args[2]="logfile.log";
+			args[2]=logFileName;
 			args[3]="MainClient";
 			args[4]=hostIP;
 			args[5]=testingParts[0];
 			args[6]="GB";
 			resultMaker.setOutputPath(outputPath);
-			resultMaker.createOutputFile();
+			resultMaker.createOutputFile(appendOutput);
 			pb = new ProcessBuilder(args);
 			pb.redirectErrorStream(true);
 			pb.directory(new File(dockerPath));
-			execute = pb.start();
-			InputStream errStream = execute.getErrorStream();
-			//Process compile = Runtime.getRuntime().exec(new String[] {"sh","execute.sh", "logfile.log","MainClient",hostIP,testingParts[0],"GB" },null,baseDir);
-			//compile.waitFor();
-			BufferedReader compileRead = new BufferedReader(new InputStreamReader(execute.getInputStream()));
-			 resultMaker.setTextArea(deploymentType);
-
-			 while((outputline= compileRead.readLine()) != null) {
-					resultMaker.appendToTextArea(outputline+System.getProperty("line.separator"));
-					resultMaker.writeToFile(outputline+System.getProperty("line.separator"));
+			resultMaker.setTextArea(deploymentType);
+			ProcessPump pump = new ProcessPump(pb);
+			pump.addListener(new ProcessPump.LineListener() {
+				public void onLine(String line) {
+					writeLine(line);
 				}
-			
-			if(errStream!=null) {
-				BufferedReader errorReader = new BufferedReader(new InputStreamReader(errStream));
-				while((outputline = errorReader.readLine())!= null)
-					resultMaker.appendToTextArea(outputline+"\n");
-			}
+			});
+			int exitCode = pump.start().get();
 			resultMaker.closeStream();
-			//docker build . -t opcua && docker run -it --network=host --add-host raspberrypi:10.200.2.8 opcua	
-//			DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
-//					.withDockerHost("tcp://"+hostIP)
-//					.build();
-//
-//			DockerClient dockerClient = DockerClientBuilder.getInstance(config)
-//					.build();
-//			HashSet<String> hasSet = new HashSet<String>(Arrays.asList("opcua"));
-//			dockerClient.buildImageCmd().withNoCache(true).withTags(hasSet).exec(new BuildImageResultCallback());
-//			BuildImageCmd cfg = DockerClientBuilder.getInstance().build().buildImageCmd(baseDir);
-//			String imageId = cfg.exec(new BuildImageResultCallback()).awaitImageId();
-//			 
-//			 
-//			 dockerClient.startContainerCmd(imageId);
-//			
-//			ExecStartCmd startCmd = dockerClient.execStartCmd(imageId);
-//			ExecStartResultCallback resultCallback = startCmd.exec(new ExecStartResultCallback(System.out, System.err));
-//			resultCallback.awaitCompletion();
-//			resultMaker.elapsedTime(String.valueOf( (after-before)/100000 ));
-//			InputStream inputStream = startCmd.getStdin();
-//			BufferedReader br = new BufferedReader(new InputStreamReader(inputStream));
-//			while((outputline= br.readLine()) != null) {
-//				resultMaker.showResults(outputline+"\n");
-//				
-//			}
-	    	
+			return exitCode == 0;
 		}catch(Exception e) {
 			resultMaker.appendToTextArea(e.getMessage().toString());
 			//e.printStackTrace();
-			
+			return false;
 		}
 	}
 
+	public boolean startNativeDeployment() {
+		try {
+			resultMaker.appendToTextArea("---------------DOCKER---------------\n");
+			String[] testingParts = testingType.split(" ");
+			resultMaker.setOutputPath(outputPath);
+			resultMaker.createOutputFile(appendOutput);
+			resultMaker.setTextArea(deploymentType);
+			DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+			DockerClient dockerClient = DockerClientBuilder.getInstance(config).build();
+			try {
+				String imageId = this.imageId != null ? this.imageId : buildImage(dockerClient);
+				CreateContainerResponse container = dockerClient.createContainerCmd(imageId)
+						.withCmd("./MainClient", hostIP, testingParts[0], "GB")
+						.withNetworkMode("host")
+						.exec();
+				try {
+					dockerClient.startContainerCmd(container.getId()).exec();
+					dockerClient.logContainerCmd(container.getId())
+							.withStdOut(true)
+							.withStdErr(true)
+							.withFollowStream(true)
+							.exec(new LogContainerResultCallback() {
+								private StringBuilder partialLine = new StringBuilder();
+
+								@Override
+								public void onNext(Frame frame) {
+									partialLine.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+									int end;
+									while ((end = partialLine.indexOf("\n")) >= 0) {
+										writeLine(partialLine.substring(0, end));
+										partialLine.delete(0, end + 1);
+									}
+								}
+
+								@Override
+								public void onComplete() {
+									if (partialLine.length() > 0)
+										writeLine(partialLine.toString());
+									super.onComplete();
+								}
+							}).awaitCompletion();
+					int statusCode = dockerClient.waitContainerCmd(container.getId())
+							.exec(new WaitContainerResultCallback()).awaitStatusCode();
+					return statusCode == 0;
+				} finally {
+					dockerClient.removeContainerCmd(container.getId()).withForce(true).exec();
+				}
+			} finally {
+				resultMaker.closeStream();
+				dockerClient.close();
+			}
+		}catch(Exception e) {
+			resultMaker.appendToTextArea(e.getMessage()+"\n");
+			return false;
+		}
+	}
+
+	private String buildImage(DockerClient dockerClient) throws Exception {
+		ImageCache imageCache = ImageCache.getInstance();
+		String contextHash = imageCache.hashBuildContext(new File(dockerPath));
+		String cachedImageId = imageCache.getImageId(contextHash);
+		if (cachedImageId != null) {
+			try {
+				dockerClient.inspectImageCmd(cachedImageId).exec();
+				resultMaker.appendToTextArea("Using cached client image " + cachedImageId + "\n");
+				return cachedImageId;
+			} catch (NotFoundException e) {
+				imageCache.removeImageId(contextHash);
+			}
+		}
+		String imageId = dockerClient.buildImageCmd(new File(dockerPath))
+				.withTags(new HashSet<String>(Arrays.asList("opcua", "opcua:" + contextHash.substring(0, 12))))
+				.exec(new BuildImageResultCallback() {
+					@Override
+					public void onNext(BuildResponseItem item) {
+						if (item.getStream() != null)
+							resultMaker.appendToTextArea(item.getStream());
+						super.onNext(item);
+					}
+				}).awaitImageId();
+		imageCache.putImageId(contextHash, imageId);
+		return imageId;
+	}
+
+	private void writeLine(String line) {
+		resultMaker.appendToTextArea(line+System.getProperty("line.separator"));
+		resultMaker.writeToFile(line+System.getProperty("line.separator"));
+		for(ProcessPump.LineListener listener : lineListeners)
+			listener.onLine(line);
+	}
+
 }
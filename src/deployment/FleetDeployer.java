@@ -0,0 +1,125 @@
+package deployment;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import controller.ResultMaker;
+
+/**
+ * Deploys the same configuration to several devices at once. Every device
+ * gets its own sub directory in the output path, so raw and output files of
+ * different devices never collide. At most maxConcurrentDeployments devices
+ * are deployed at the same time. The devices share one docker directory, so
+ * the client image is built once up front with the native engine and every
+ * device runs its own container of it; execute.sh builds into one fixed tag
+ * and cannot run for several devices at once.
+ */
+public class FleetDeployer {
+	private List<DeviceTarget> targets;
+	private String ansiblePath;
+	private String dockerPath;
+	private String testingType;
+	private String outputPath;
+	private boolean deploymentType;
+	private int maxConcurrentDeployments;
+	private ResultMaker resultMaker;
+
+	public FleetDeployer(List<DeviceTarget> targets, String ansiblePath, String dockerPath, String testingType,
+			boolean deploymentType, String outputPath, int maxConcurrentDeployments) {
+		this.targets = targets;
+		this.ansiblePath = ansiblePath;
+		this.dockerPath = dockerPath;
+		this.testingType = testingType;
+		this.deploymentType = deploymentType;
+		this.outputPath = outputPath;
+		this.maxConcurrentDeployments = Math.max(1, maxConcurrentDeployments);
+		resultMaker = new ResultMaker();
+	}
+
+	public Map<DeviceTarget, Boolean> startDeployment() {
+		Map<DeviceTarget, Boolean> results = new LinkedHashMap<>();
+		if (targets == null || targets.isEmpty())
+			return results;
+
+		String imageId = new DockerDeployer(targets.get(0).getHostIP(), dockerPath, testingType, deploymentType,
+				outputPath).prepareImage();
+		if (imageId == null) {
+			for (DeviceTarget target : targets)
+				results.put(target, false);
+			writeSummary(results);
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentDeployments, targets.size()));
+		Map<DeviceTarget, Future<Boolean>> futures = new LinkedHashMap<>();
+		try {
+			for (DeviceTarget target : targets)
+				futures.put(target, executor.submit(createTask(target, imageId)));
+
+			for (Map.Entry<DeviceTarget, Future<Boolean>> entry : futures.entrySet()) {
+				boolean passed;
+				try {
+					passed = entry.getValue().get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+					passed = false;
+				}
+				results.put(entry.getKey(), passed);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (Future<Boolean> future : futures.values())
+				future.cancel(true);
+		} finally {
+			executor.shutdown();
+		}
+		writeSummary(results);
+		return results;
+	}
+
+	private Callable<Boolean> createTask(DeviceTarget target, String imageId) {
+		return new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				File deviceOutput = new File(outputPath + File.separator + target.getHostIP());
+				deviceOutput.mkdirs();
+				DeployerMaker deployerMaker = new DeployerMaker(target.getHostIP(), target.getPassword(), ansiblePath,
+						dockerPath, testingType, deploymentType, deviceOutput.getAbsolutePath());
+				deployerMaker.setFleetMode(true);
+				deployerMaker.setNativeEngine(true);
+				deployerMaker.setImageId(imageId);
+				return deployerMaker.startDeployment();
+			}
+		};
+	}
+
+	private void writeSummary(Map<DeviceTarget, Boolean> results) {
+		int passed = 0;
+		StringBuilder summary = new StringBuilder();
+		summary.append("---------------FLEET SUMMARY---------------\n");
+		for (Map.Entry<DeviceTarget, Boolean> entry : results.entrySet()) {
+			if (entry.getValue())
+				passed++;
+			summary.append(entry.getKey().getHostIP()).append(" : ").append(entry.getValue() ? "PASSED" : "FAILED")
+					.append("\n");
+		}
+		summary.append(passed + " of " + results.size() + " devices passed\n");
+
+		resultMaker.setTextArea(deploymentType);
+		resultMaker.appendToTextArea(summary.toString());
+		try (BufferedWriter writer = new BufferedWriter(
+				new FileWriter(outputPath + File.separator + "opc_ua_automated_test_tool_fleet_summary.txt"))) {
+			writer.write(summary.toString());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package deployment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Maps a hash of a docker build context (including the generated Dockerfile)
+ * to the id of the image that was built from it, so an unchanged client
+ * directory can be run without building again. The index is kept in the
+ * user's home directory next to the device files.
+ */
+public class ImageCache {
+	private static ImageCache instance;
+
+	private File indexFile;
+	private Properties index;
+
+	private ImageCache() {
+		File directory = new File(System.getProperty("user.home") + File.separator + "opc-ua-deployment-tool-cache");
+		directory.mkdirs();
+		indexFile = new File(directory.getAbsolutePath() + File.separator + "docker-images.properties");
+		index = new Properties();
+		if (indexFile.exists()) {
+			try (InputStream inStream = new FileInputStream(indexFile)) {
+				index.load(inStream);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public static synchronized ImageCache getInstance() {
+		if (instance == null)
+			instance = new ImageCache();
+		return instance;
+	}
+
+	public synchronized String getImageId(String contextHash) {
+		return index.getProperty(contextHash);
+	}
+
+	public synchronized void putImageId(String contextHash, String imageId) {
+		index.setProperty(contextHash, imageId);
+		store();
+	}
+
+	public synchronized void removeImageId(String contextHash) {
+		index.remove(contextHash);
+		store();
+	}
+
+	private void store() {
+		try (OutputStream outStream = new FileOutputStream(indexFile)) {
+			index.store(outStream, "docker build context hash -> image id");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	public String hashBuildContext(File directory) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		List<String> relativePaths = new ArrayList<>();
+		collectFiles(directory, "", relativePaths);
+		Collections.sort(relativePaths);
+		byte[] buffer = new byte[64 * 1024];
+		for (String relativePath : relativePaths) {
+			digest.update(relativePath.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			try (InputStream inStream = new FileInputStream(new File(directory, relativePath))) {
+				int read;
+				while ((read = inStream.read(buffer)) != -1)
+					digest.update(buffer, 0, read);
+			}
+			digest.update((byte) 0);
+		}
+		StringBuilder hash = new StringBuilder();
+		for (byte b : digest.digest())
+			hash.append(String.format("%02x", b));
+		return hash.toString();
+	}
+
+	private void collectFiles(File directory, String prefix, List<String> relativePaths) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (file.isDirectory())
+				collectFiles(file, prefix + file.getName() + "/", relativePaths);
+			else if (!file.getName().endsWith(".log"))
+				relativePaths.add(prefix + file.getName());
+		}
+	}
+
+}
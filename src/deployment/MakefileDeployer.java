@@ -1,9 +1,8 @@
 package deployment;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -21,7 +20,6 @@ public class MakefileDeployer {
 	private String testing_type,memory_size;
 	private MainController controller;
 	private String cmakeCommand,makeCommand;
-	private String outputline;
 	private DockerDeployer deployer;
 	private String hostIP;
 	public MakefileDeployer(String path,String additionalParameters,String deviceName,String testing_type) {
@@ -55,31 +53,92 @@ public class MakefileDeployer {
 	public void startCMakeDeployment() throws Exception {
 		
 			File file = new File(path+File.separator+"build");
-			if(file.exists()&& file.isDirectory()) {
-				file.delete();
-				file.mkdir();
-			}
-			else
-			file.mkdir();
 			
 			setDeviceMemory();
 			
-			testing_type = testing_type.substring(0,testing_type.indexOf(" "));
-			if(!additionalParameters.isEmpty()||!additionalParameters.equals(""))
-				cmakeCommand = "cmake "+"-DTESTING_TYPE="+testing_type+"-DMEMORY_SIZE="+memory_size+additionalParameters+" ..";
+			if(testing_type.contains(" "))
+				testing_type = testing_type.substring(0,testing_type.indexOf(" "));
+			if(!additionalParameters.trim().isEmpty())
+				cmakeCommand = "cmake "+"-DTESTING_TYPE="+testing_type+" -DMEMORY_SIZE="+memory_size+" "+additionalParameters.trim()+" ..";
 			else
 				cmakeCommand = "cmake ..";
-			Process proc = Runtime.getRuntime().exec(cmakeCommand,null,file);
-			proc.waitFor();
-			appendToOutputArea(proc);
-			makeCommand = "make -j";
-			proc=Runtime.getRuntime().exec(makeCommand,null,file);
-			proc.waitFor();
-			setIp(proc);
-			appendToOutputArea(proc);
+			
+			// Keep the CMake cache and object files between runs and only start
+			// from a clean build directory when the configuration flags change.
+			File configurationFile = new File(file, ".opcua-build-configuration");
+			if(file.exists() && !cmakeCommand.equals(readConfiguration(configurationFile))) {
+				resultMaker.appendToTextArea("Build configuration changed, cleaning "+file.getAbsolutePath()+"\n");
+				deleteDirectory(file);
+			}
+			file.mkdirs();
+			
+			if(!configurationFile.exists() || !new File(file, "CMakeCache.txt").exists()) {
+				int exitCode = runProcess(new ProcessBuilder(cmakeCommand.split("\\s+")).directory(file), false);
+				if(exitCode != 0) {
+					resultMaker.appendToTextArea("cmake failed with exit code "+exitCode+"\n");
+					throw new Exception("cmake failed with exit code "+exitCode);
+				}
+				Files.write(configurationFile.toPath(), cmakeCommand.getBytes(StandardCharsets.UTF_8));
+			}
+			makeCommand = "make -j"+getParallelJobs();
+			runProcess(new ProcessBuilder(makeCommand.split(" ")).directory(file), true);
 	
 
 	}
+	
+	private String readConfiguration(File configurationFile) {
+		try {
+			if(configurationFile.exists())
+				return new String(Files.readAllBytes(configurationFile.toPath()), StandardCharsets.UTF_8);
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	private void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				if(file.isDirectory() && !Files.isSymbolicLink(file.toPath()))
+					deleteDirectory(file);
+				else
+					file.delete();
+			}
+		}
+		directory.delete();
+	}
+	
+	/*
+	 * One job per core, but no more jobs than the available memory allows,
+	 * since compiling open62541.c alone takes several hundred megabytes.
+	 * Where the available memory is unknown at most two jobs are run.
+	 */
+	public int getParallelJobs() {
+		Integer configuredJobs = Integer.getInteger("opcua.make.jobs");
+		if(configuredJobs != null && configuredJobs > 0)
+			return configuredJobs;
+		int jobs = Runtime.getRuntime().availableProcessors();
+		long availableMemory = getAvailableMemory();
+		if(availableMemory > 0)
+			jobs = (int) Math.min(jobs, availableMemory / (512L * 1024 * 1024));
+		else
+			jobs = Math.min(jobs, 2);
+		return Math.max(1, jobs);
+	}
+	
+	private long getAvailableMemory() {
+		try {
+			for(String line : Files.readAllLines(new File("/proc/meminfo").toPath())) {
+				if(line.startsWith("MemAvailable:"))
+					return Long.parseLong(line.replaceAll("\\D+", "")) * 1024;
+			}
+		}catch(Exception e) {
+			// not a Linux host
+		}
+		return -1;
+	}
+	
 	public void startBashDeployment() throws Exception{
 			String args[]=new String[5];
 			args[0]="sh";
@@ -90,10 +149,7 @@ public class MakefileDeployer {
 			ProcessBuilder pb = new ProcessBuilder(args);
 			pb.redirectErrorStream(true);
 			pb.directory(new File(path));	
-			Process proc = pb.start();
-			proc.waitFor();
-			setIp(proc);
-			appendToOutputArea(proc);
+			runProcess(pb, true);
 	
 	
 	}
@@ -113,42 +169,39 @@ public class MakefileDeployer {
 		
 	}
 	
-	public void setIp(Process process) {
+	public void setIp(String outputline) {
 		try {
-			BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-			while((outputline = bufferedReader.readLine()) != null) {
-				if(outputline.contains("opc.tcp")) {
-					String [] arr = outputline.split(" ");
-					for(String str: arr) {
-						if(str.contains("opc.tcp")) {
-							str.replaceAll("/",  Matcher.quoteReplacement("\\/"));
-							String regex = "opc.tcp:\\/\\/(?<IP>\\w+):4840\\/";
-							Pattern titlePattern = Pattern.compile(regex);
-							Matcher matcher = titlePattern.matcher(str);
-							if(matcher.find()) {
-								hostIP = matcher.group("IP");
-								hostIP+=".local";
-								break;
-								
-							}
-							else {
-								regex = "(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)";
-								titlePattern = Pattern.compile(regex);
-								matcher = titlePattern.matcher(outputline);
-								matcher.find();
-								hostIP=matcher.group();
-								break;
-							}
-						}
-						
-						
-						
+			if(outputline.contains("opc.tcp")) {
+				String [] arr = outputline.split(" ");
+				for(String str: arr) {
+					if(str.contains("opc.tcp")) {
+						str.replaceAll("/",  Matcher.quoteReplacement("\\/"));
+						String regex = "opc.tcp:\\/\\/(?<IP>\\w+):4840\\/";
+						Pattern titlePattern = Pattern.compile(regex);
+						Matcher matcher = titlePattern.matcher(str);
+						if(matcher.find()) {
+							hostIP = matcher.group("IP");
+							hostIP+=".local";
+							break;
 							
+						}
+						else {
+							regex = "(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)";
+							titlePattern = Pattern.compile(regex);
+							matcher = titlePattern.matcher(outputline);
+							matcher.find();
+							hostIP=matcher.group();
+							break;
+						}
 					}
 					
 					
 					
+						
 				}
+				
+				
+				
 			}
 	
 		}catch(Exception e) {
@@ -158,16 +211,18 @@ public class MakefileDeployer {
 		
 	}
 
-	public void appendToOutputArea(Process proc) throws IOException {
-		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(proc.getInputStream()));
+	public int runProcess(ProcessBuilder pb, boolean parseIp) throws Exception {
 		resultMaker.setTextArea(false);
-		String outputline = bufferedReader.readLine();
-			while((outputline = bufferedReader.readLine()) != null) {		
-				resultMaker.appendToTextArea(outputline+"\n");
-				outputline = bufferedReader.readLine();
+		pb.redirectErrorStream(true);
+		ProcessPump pump = new ProcessPump(pb);
+		pump.addListener(new ProcessPump.LineListener() {
+			public void onLine(String line) {
+				resultMaker.appendToTextArea(line+"\n");
+				if(parseIp)
+					setIp(line);
 			}
-		
-		bufferedReader.close();
+		});
+		return pump.start().get();
 	}
 	public void startTesting(String dockerPath,String outputPath){
 		try {
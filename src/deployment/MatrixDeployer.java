@@ -0,0 +1,156 @@
+package deployment;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.ResultMaker;
+import controller.SessionPool;
+
+/**
+ * Runs several test suites against one server deployment. The server is
+ * deployed once through Ansible and only restarted over SSH when the next
+ * suites need another security mode; the restarted server appends to the
+ * server log of the first one. Every client run appends to the same
+ * raw output file, one section per suite. The client image is built once
+ * with the native engine and then run for every suite.
+ */
+public class MatrixDeployer {
+	private String username;
+	private String hostIP;
+	private String password;
+	private String ansiblePath;
+	private String dockerPath;
+	private String outputPath;
+	private List<String> testingTypes;
+	private boolean deploymentType;
+	private ResultMaker resultMaker;
+
+	public MatrixDeployer(String username, String hostIP, String password, String ansiblePath, String dockerPath,
+			Collection<String> testingTypes, boolean deploymentType, String outputPath) {
+		this.username = username;
+		this.hostIP = hostIP;
+		this.password = password;
+		this.ansiblePath = ansiblePath;
+		this.dockerPath = dockerPath;
+		this.testingTypes = new ArrayList<>(testingTypes);
+		this.deploymentType = deploymentType;
+		this.outputPath = outputPath;
+		resultMaker = new ResultMaker();
+	}
+
+	public static boolean isEncrypted(String testingType) {
+		return testingType.contains("Encryption");
+	}
+
+	/*
+	 * Suites in the security mode of the first suite come first, so the
+	 * server has to be restarted at most once.
+	 */
+	public List<List<String>> getSecurityGroups() {
+		List<String> firstGroup = new ArrayList<>();
+		List<String> secondGroup = new ArrayList<>();
+		for (String testingType : testingTypes) {
+			if (isEncrypted(testingType) == isEncrypted(testingTypes.get(0)))
+				firstGroup.add(testingType);
+			else
+				secondGroup.add(testingType);
+		}
+		List<List<String>> groups = new ArrayList<>();
+		groups.add(firstGroup);
+		if (!secondGroup.isEmpty())
+			groups.add(secondGroup);
+		return groups;
+	}
+
+	public static String getServerTestingType(List<String> group) {
+		return group.size() == 1 ? group.get(0) : "All Tests";
+	}
+
+	public Map<String, Boolean> startDeployment() {
+		Map<String, Boolean> results = new LinkedHashMap<>();
+		if (testingTypes.isEmpty())
+			return results;
+		List<List<String>> groups = getSecurityGroups();
+
+		AnsibleDeployer ansibleDeployer = new AnsibleDeployer(ansiblePath, password);
+		boolean serverDeployed = ansibleDeployer.startDeployment();
+		String imageId = new DockerDeployer(hostIP, dockerPath, testingTypes.get(0), deploymentType, outputPath)
+				.prepareImage();
+		boolean appendOutput = false;
+		for (int i = 0; i < groups.size(); i++) {
+			boolean restartFailed = false;
+			if (i > 0 && imageId != null) {
+				serverDeployed = restartServer(getServerTestingType(groups.get(i)));
+				restartFailed = !serverDeployed;
+			}
+			for (String testingType : groups.get(i)) {
+				if (imageId == null || restartFailed) {
+					results.put(testingType, false);
+					continue;
+				}
+				DockerDeployer dockerDeployer = new DockerDeployer(hostIP, dockerPath, testingType, deploymentType,
+						outputPath);
+				dockerDeployer.setNativeEngine(true);
+				dockerDeployer.setImageId(imageId);
+				dockerDeployer.setAppendOutput(appendOutput);
+				appendOutput = true;
+				boolean passed = dockerDeployer.startDeployment();
+				results.put(testingType, serverDeployed && passed);
+			}
+		}
+
+		StringBuilder summary = new StringBuilder("---------------MATRIX SUMMARY---------------\n");
+		for (Map.Entry<String, Boolean> entry : results.entrySet())
+			summary.append(entry.getKey()).append(" : ").append(entry.getValue() ? "PASSED" : "FAILED").append("\n");
+		resultMaker.setTextArea(deploymentType);
+		resultMaker.appendToTextArea(summary.toString());
+		return results;
+	}
+
+	private boolean restartServer(String serverTestingType) {
+		String testType = serverTestingType.substring(0, serverTestingType.indexOf(" "));
+		String encryptionType = isEncrypted(serverTestingType) ? "256sha256" : "None";
+		resultMaker.setTextArea(deploymentType);
+		resultMaker.appendToTextArea("---------------RESTARTING SERVER (" + encryptionType + ")---------------\n");
+		try {
+			SessionPool.getInstance().execCommand(username, hostIP, password,
+					"fuser -k -n tcp 4840; sleep 1; cd /etc/opcua && nohup ./MainServer " + encryptionType + " "
+							+ testType + " GB < /dev/null >> log.txt 2>&1 &");
+		} catch (Exception e) {
+			resultMaker.appendToTextArea(e.getMessage() + "\n");
+			return false;
+		}
+		if (waitForServer())
+			return true;
+		resultMaker.appendToTextArea("Server did not listen on port 4840 in time\n");
+		return false;
+	}
+
+	/*
+	 * Polls the server port until it accepts connections, for at most
+	 * opcua.matrix.serverTimeout milliseconds (30000 by default).
+	 */
+	private boolean waitForServer() {
+		long deadline = System.currentTimeMillis() + Long.getLong("opcua.matrix.serverTimeout", 30000);
+		while (System.currentTimeMillis() < deadline) {
+			try (Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress(hostIP, 4840), 1000);
+				return true;
+			} catch (Exception e) {
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+}
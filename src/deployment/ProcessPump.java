@@ -0,0 +1,124 @@
+package deployment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts a process and drains its stdout and stderr on dedicated reader
+ * threads. Lines are handed through a bounded queue to a dispatcher thread
+ * that delivers them to the registered listeners in order, so a slow listener
+ * slows the readers down instead of growing memory. The returned future
+ * completes with the exit code once both streams are drained.
+ */
+public class ProcessPump {
+
+	public interface LineListener {
+		void onLine(String line);
+	}
+
+	private static final AtomicInteger pumpCounter = new AtomicInteger();
+	private static final String END_OF_STREAMS = new String("END_OF_STREAMS");
+
+	private ProcessBuilder processBuilder;
+	private List<LineListener> listeners;
+	private BlockingQueue<String> queue;
+	private Process process;
+	private CompletableFuture<Integer> completion;
+	private AtomicInteger openStreams;
+	private String name;
+
+	public ProcessPump(ProcessBuilder processBuilder) {
+		this(processBuilder, 1024);
+	}
+
+	public ProcessPump(ProcessBuilder processBuilder, int capacity) {
+		this.processBuilder = processBuilder;
+		listeners = new CopyOnWriteArrayList<>();
+		queue = new ArrayBlockingQueue<>(capacity);
+		completion = new CompletableFuture<>();
+		openStreams = new AtomicInteger();
+		name = "process-pump-" + pumpCounter.incrementAndGet();
+	}
+
+	public void addListener(LineListener listener) {
+		listeners.add(listener);
+	}
+
+	public Process getProcess() {
+		return process;
+	}
+
+	public CompletableFuture<Integer> start() throws IOException {
+		process = processBuilder.start();
+		openStreams.set(processBuilder.redirectErrorStream() ? 1 : 2);
+		startReader(process.getInputStream(), name + "-stdout");
+		if (!processBuilder.redirectErrorStream())
+			startReader(process.getErrorStream(), name + "-stderr");
+		startDispatcher();
+		return completion;
+	}
+
+	private void startReader(InputStream stream, String threadName) {
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(stream))) {
+					String line;
+					while ((line = bufferedReader.readLine()) != null)
+						queue.put(line);
+				} catch (IOException e) {
+					e.printStackTrace();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					if (openStreams.decrementAndGet() == 0)
+						putEndOfStreams();
+				}
+			}
+		}, threadName);
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	private void putEndOfStreams() {
+		try {
+			queue.put(END_OF_STREAMS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			completion.completeExceptionally(e);
+		}
+	}
+
+	private void startDispatcher() {
+		Thread dispatcher = new Thread(new Runnable() {
+			public void run() {
+				try {
+					String line;
+					while ((line = queue.take()) != END_OF_STREAMS) {
+						for (LineListener listener : listeners) {
+							try {
+								listener.onLine(line);
+							} catch (Exception e) {
+								e.printStackTrace();
+							}
+						}
+					}
+					completion.complete(process.waitFor());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					completion.completeExceptionally(e);
+				}
+			}
+		}, name + "-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+}
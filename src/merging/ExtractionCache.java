@@ -0,0 +1,175 @@
+package merging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import reporting.Statistics;
+
+/**
+ * On-disk cache of what the merger reads from a report, keyed by a hash of
+ * the report file: the bookmarks, the text of every section extracted so far
+ * and the statistics row parsed from it. Merging a report that was merged before only costs hashing the file
+ * instead of opening it and extracting its sections again. The least
+ * recently used entries are removed once the cache grows beyond
+ * opcua.merge.cacheSize megabytes (64 by default).
+ */
+public class ExtractionCache {
+	/* Bump whenever the extracted text or its format changes. */
+	private static final int EXTRACTION_VERSION = 3;
+	private static ExtractionCache instance;
+
+	private File directory;
+	private long maxSize;
+	private long currentSize = -1;
+
+	private ExtractionCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		directory.mkdirs();
+	}
+
+	public static synchronized ExtractionCache getInstance() {
+		if (instance == null)
+			instance = new ExtractionCache(
+					new File(System.getProperty("user.home") + File.separator + "opc-ua-deployment-tool-cache"
+							+ File.separator + "merge"),
+					Long.getLong("opcua.merge.cacheSize", 64) * 1024 * 1024);
+		return instance;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("opcua.merge.cache", "true"));
+	}
+
+	public static String getKey(File file) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update((byte) EXTRACTION_VERSION);
+			try (InputStream in = new FileInputStream(file)) {
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					digest.update(buffer, 0, read);
+			}
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest())
+				key.append(String.format("%02x", b));
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	public MergeInput get(String key, File file) {
+		File entry = new File(directory, key + ".bin");
+		try {
+			byte[] bytes = Files.readAllBytes(entry.toPath());
+			entry.setLastModified(System.currentTimeMillis());
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			int numberOfPages = in.readInt();
+			int count = in.readInt();
+			List<MergeInput.Bookmark> bookmarks = new ArrayList<>(count);
+			for (int i = 0; i < count; i++)
+				bookmarks.add(new MergeInput.Bookmark(readString(in), in.readInt(), in.readFloat()));
+			count = in.readInt();
+			Map<String, String> sectionTexts = new HashMap<>();
+			for (int i = 0; i < count; i++)
+				sectionTexts.put(readString(in), readString(in));
+			count = in.readInt();
+			Map<String, Statistics> statistics = new HashMap<>();
+			for (int i = 0; i < count; i++)
+				statistics.put(readString(in), new Statistics(in.readDouble(), in.readDouble(), in.readDouble(),
+						in.readDouble(), in.readDouble(), in.readDouble()));
+			return new MergeInput(file, key, numberOfPages, bookmarks, sectionTexts, statistics);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	public void put(String key, MergeInput input) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(input.getNumberOfPages());
+			out.writeInt(input.getBookmarks().size());
+			for (MergeInput.Bookmark bookmark : input.getBookmarks()) {
+				writeString(out, bookmark.title);
+				out.writeInt(bookmark.page);
+				out.writeFloat(bookmark.top);
+			}
+			out.writeInt(input.getSectionTexts().size());
+			for (Map.Entry<String, String> sectionText : input.getSectionTexts().entrySet()) {
+				writeString(out, sectionText.getKey());
+				writeString(out, sectionText.getValue());
+			}
+			out.writeInt(input.getAllStatistics().size());
+			for (Map.Entry<String, Statistics> row : input.getAllStatistics().entrySet()) {
+				writeString(out, row.getKey());
+				for (int i = 0; i < Statistics.NAMES.length; i++)
+					out.writeDouble(row.getValue().getValue(i));
+			}
+			out.flush();
+			File temporary = File.createTempFile(key, ".tmp", directory);
+			Files.write(temporary.toPath(), bytes.toByteArray());
+			Files.move(temporary.toPath(), new File(directory, key + ".bin").toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			added(bytes.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private synchronized void added(long length) {
+		if (currentSize >= 0)
+			currentSize += length;
+		if (currentSize < 0 || currentSize > maxSize)
+			trim();
+	}
+
+	private void trim() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+		if (files == null)
+			return;
+		long size = 0;
+		for (File file : files)
+			size += file.length();
+		if (size > maxSize) {
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+			for (int i = 0; i < files.length && size > maxSize; i++) {
+				long length = files[i].length();
+				if (files[i].delete())
+					size -= length;
+			}
+		}
+		currentSize = size;
+	}
+}
@@ -0,0 +1,309 @@
+package merging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStream;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import com.itextpdf.text.pdf.SimpleBookmark;
+import com.itextpdf.text.pdf.parser.ContentByteUtils;
+import com.itextpdf.text.pdf.parser.ImageRenderInfo;
+import com.itextpdf.text.pdf.parser.MarkedContentInfo;
+import com.itextpdf.text.pdf.parser.PdfContentStreamProcessor;
+import com.itextpdf.text.pdf.parser.RenderListener;
+import com.itextpdf.text.pdf.parser.SimpleTextExtractionStrategy;
+import com.itextpdf.text.pdf.parser.TextRenderInfo;
+import com.itextpdf.text.pdf.parser.Vector;
+import com.itextpdf.text.pdf.parser.XObjectDoHandler;
+
+import reporting.ResultParser;
+import reporting.Statistics;
+
+/**
+ * Everything the merger needs from one input report. Reading an input only
+ * takes its bookmarks; the text of a section is extracted later, and only
+ * for the sections that all inputs have in common. Every bookmark points at
+ * the position right below its section title, so a section runs from its
+ * own bookmark to the next one and nothing else of the page is read.
+ */
+public class MergeInput {
+	private static final Pattern DESTINATION = Pattern.compile("(?<page>\\d+)(\\s+FitH\\s+(?<top>-?[\\d.]+))?.*");
+	private static final float UNBOUNDED = 100000;
+	private static final XObjectDoHandler SKIP_FORMS = new XObjectDoHandler() {
+		public void handleXObject(PdfContentStreamProcessor processor, PdfStream stream, PdfIndirectReference ref) {
+		}
+
+		public void handleXObject(PdfContentStreamProcessor processor, PdfStream stream, PdfIndirectReference ref,
+				Stack<MarkedContentInfo> markedContentStack) {
+		}
+	};
+
+	private File file;
+	private String key;
+	private int numberOfPages;
+	private List<Bookmark> bookmarks;
+	private Map<String, String> sectionTexts;
+	private Map<String, Statistics> statistics;
+	private List<Region> regions;
+
+	MergeInput(File file, String key, int numberOfPages, List<Bookmark> bookmarks,
+			Map<String, String> sectionTexts, Map<String, Statistics> statistics) {
+		this.file = file;
+		this.key = key;
+		this.numberOfPages = numberOfPages;
+		this.bookmarks = bookmarks;
+		this.sectionTexts = sectionTexts;
+		this.statistics = statistics;
+	}
+
+	/*
+	 * Reports that were read before come from the extraction cache, along
+	 * with every section text extracted from them so far and the statistics
+	 * parsed from those texts.
+	 */
+	public static MergeInput read(File file) throws IOException {
+		ExtractionCache cache = ExtractionCache.isEnabled() ? ExtractionCache.getInstance() : null;
+		String key = cache != null ? ExtractionCache.getKey(file) : null;
+		MergeInput input = cache != null ? cache.get(key, file) : null;
+		if (input != null)
+			return input;
+		PdfReader reader = openReader(file);
+		try {
+			List<Bookmark> bookmarks = new ArrayList<>();
+			List<HashMap<String, Object>> outline = SimpleBookmark.getBookmark(reader);
+			if (outline != null)
+				for (HashMap<String, Object> bookmark : outline)
+					bookmarks.add(new Bookmark((String) bookmark.get("Title"), (String) bookmark.get("Page")));
+			return new MergeInput(file, key, reader.getNumberOfPages(), bookmarks, new HashMap<String, String>(),
+					new HashMap<String, Statistics>());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	 * Partial mode, so only the pages that are looked at get parsed.
+	 */
+	private static PdfReader openReader(File file) throws IOException {
+		return new PdfReader(new RandomAccessFileOrArray(
+				new RandomAccessSourceFactory().setForceRead(false).createBestSource(file.getAbsolutePath())), null);
+	}
+
+	/*
+	 * Splits the pages of the sections that are still missing into at most
+	 * the given number of jobs. Every job opens its own reader, so the jobs
+	 * can run on any threads; finishExtraction() must be called once all of
+	 * them are done.
+	 */
+	public List<Callable<Void>> createExtractionJobs(Collection<String> titles, int jobs) {
+		regions = new ArrayList<>();
+		for (int i = 0; i < bookmarks.size(); i++) {
+			Bookmark bookmark = bookmarks.get(i);
+			if (!titles.contains(bookmark.title) || sectionTexts.containsKey(bookmark.title) || bookmark.page == 0)
+				continue;
+			Bookmark next = i + 1 < bookmarks.size() ? bookmarks.get(i + 1) : null;
+			int lastPage = next != null && next.page >= bookmark.page ? next.page : numberOfPages;
+			for (int page = bookmark.page; page <= lastPage; page++) {
+				float top = page == bookmark.page ? bookmark.top : UNBOUNDED;
+				float bottom = next != null && page == next.page ? next.top : -UNBOUNDED;
+				if (top > bottom)
+					regions.add(new Region(bookmark.title, page, bottom, top));
+			}
+		}
+		TreeMap<Integer, List<Region>> regionsByPage = new TreeMap<>();
+		for (Region region : regions) {
+			if (!regionsByPage.containsKey(region.page))
+				regionsByPage.put(region.page, new ArrayList<Region>());
+			regionsByPage.get(region.page).add(region);
+		}
+		List<List<Region>> pages = new ArrayList<>(regionsByPage.values());
+		List<Callable<Void>> extractionJobs = new ArrayList<>();
+		int pagesPerJob = Math.max(1, (pages.size() + jobs - 1) / Math.max(1, jobs));
+		for (int from = 0; from < pages.size(); from += pagesPerJob) {
+			final List<List<Region>> jobPages = pages.subList(from, Math.min(pages.size(), from + pagesPerJob));
+			extractionJobs.add(new Callable<Void>() {
+				public Void call() throws IOException {
+					extract(jobPages);
+					return null;
+				}
+			});
+		}
+		return extractionJobs;
+	}
+
+	/*
+	 * Every page is parsed once and its text is handed to the region it lies
+	 * in. Charts are form XObjects and hold no statistics, so they are not
+	 * parsed at all.
+	 */
+	private void extract(List<List<Region>> pages) throws IOException {
+		PdfReader reader = openReader(file);
+		try {
+			for (List<Region> pageRegions : pages) {
+				int page = pageRegions.get(0).page;
+				RegionListener listener = new RegionListener(pageRegions);
+				PdfContentStreamProcessor processor = new PdfContentStreamProcessor(listener);
+				processor.registerXObjectDoHandler(PdfName.FORM, SKIP_FORMS);
+				processor.processContent(ContentByteUtils.getContentBytesForPage(reader, page),
+						reader.getPageN(page).getAsDict(PdfName.RESOURCES));
+				listener.finish();
+				reader.releasePage(page);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	 * Joins the extracted parts of every section and takes the statistics
+	 * table row of each; a section without exactly one row gets no bars.
+	 * Newly extracted sections are added to the cache.
+	 */
+	public void finishExtraction(Collection<String> titles) {
+		Map<String, StringBuilder> texts = new LinkedHashMap<>();
+		for (Region region : regions) {
+			if (!texts.containsKey(region.title))
+				texts.put(region.title, new StringBuilder());
+			texts.get(region.title).append(region.text).append('\n');
+		}
+		for (Map.Entry<String, StringBuilder> text : texts.entrySet())
+			sectionTexts.put(text.getKey(), text.getValue().toString());
+		regions = null;
+		for (String title : titles) {
+			if (statistics.containsKey(title))
+				continue;
+			String text = sectionTexts.get(title);
+			List<Statistics> rows = text != null ? ResultParser.parseStatistics(text) : new ArrayList<Statistics>();
+			if (rows.size() == 1)
+				statistics.put(title, rows.get(0));
+		}
+		if (!texts.isEmpty() && key != null)
+			ExtractionCache.getInstance().put(key, this);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public List<String> getTitles() {
+		List<String> titles = new ArrayList<>();
+		for (Bookmark bookmark : bookmarks)
+			titles.add(bookmark.title);
+		return titles;
+	}
+
+	public Statistics getStatistics(String title) {
+		return statistics.get(title);
+	}
+
+	int getNumberOfPages() {
+		return numberOfPages;
+	}
+
+	List<Bookmark> getBookmarks() {
+		return bookmarks;
+	}
+
+	Map<String, String> getSectionTexts() {
+		return sectionTexts;
+	}
+
+	Map<String, Statistics> getAllStatistics() {
+		return statistics;
+	}
+
+	/*
+	 * A bookmark as "page FitH top"; without a position the section starts
+	 * at the top of its page, and page 0 means the destination is unknown.
+	 */
+	static class Bookmark {
+		String title;
+		int page;
+		float top;
+
+		Bookmark(String title, int page, float top) {
+			this.title = title;
+			this.page = page;
+			this.top = top;
+		}
+
+		Bookmark(String title, String destination) {
+			this.title = title;
+			top = UNBOUNDED;
+			Matcher matcher = DESTINATION.matcher(destination != null ? destination : "");
+			if (matcher.matches()) {
+				page = Integer.parseInt(matcher.group("page"));
+				if (matcher.group("top") != null)
+					top = Float.parseFloat(matcher.group("top"));
+			}
+		}
+	}
+
+	/*
+	 * Sends the text of a page to the region its baseline starts in.
+	 */
+	private static class RegionListener implements RenderListener {
+		private List<Region> regions;
+		private List<SimpleTextExtractionStrategy> strategies;
+
+		RegionListener(List<Region> regions) {
+			this.regions = regions;
+			strategies = new ArrayList<>();
+			for (int i = 0; i < regions.size(); i++)
+				strategies.add(new SimpleTextExtractionStrategy());
+		}
+
+		public void beginTextBlock() {
+		}
+
+		public void renderText(TextRenderInfo renderInfo) {
+			float y = renderInfo.getBaseline().getStartPoint().get(Vector.I2);
+			for (int i = 0; i < regions.size(); i++)
+				if (y >= regions.get(i).bottom && y <= regions.get(i).top)
+					strategies.get(i).renderText(renderInfo);
+		}
+
+		public void endTextBlock() {
+		}
+
+		public void renderImage(ImageRenderInfo renderInfo) {
+		}
+
+		void finish() {
+			for (int i = 0; i < regions.size(); i++)
+				regions.get(i).text = strategies.get(i).getResultantText();
+		}
+	}
+
+	/*
+	 * The part of a section on one page.
+	 */
+	private static class Region {
+		String title;
+		int page;
+		float bottom, top;
+		String text;
+
+		Region(String title, int page, float bottom, float top) {
+			this.title = title;
+			this.page = page;
+			this.bottom = bottom;
+			this.top = top;
+		}
+	}
+}
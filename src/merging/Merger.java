@@ -1,23 +1,25 @@
 package merging;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.labels.ItemLabelAnchor;
 import org.jfree.chart.labels.ItemLabelPosition;
@@ -36,60 +38,83 @@ import com.itextpdf.text.Image;
 import com.itextpdf.text.Paragraph;
 import com.itextpdf.text.pdf.PdfDestination;
 import com.itextpdf.text.pdf.PdfOutline;
-import com.itextpdf.text.pdf.PdfReader;
 import com.itextpdf.text.pdf.PdfWriter;
-import com.itextpdf.text.pdf.SimpleBookmark;
-import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
-import com.itextpdf.text.pdf.parser.SimpleTextExtractionStrategy;
-import com.itextpdf.text.pdf.parser.TextExtractionStrategy;
 
+import reporting.PdfCharts;
+import reporting.Statistics;
+
+/*
+ * Merges the reports of any number of devices. The inputs are read in
+ * parallel and the common section titles are narrowed down as each input
+ * arrives; then only the parts of the pages holding those sections are
+ * extracted. Every section gets one bar chart per group of
+ * opcua.merge.groupSize devices (8 by default), so charts stay readable when
+ * many devices are compared; the charts are drawn on opcua.merge.threads
+ * threads while the merged report is written.
+ */
 public class Merger {
+	private static final Pattern REPORT_NAME = Pattern.compile("(?<name>.+)-\\d{4}-\\d{2}-\\d{2}\\.pdf");
+	private static final int NAMES_IN_FILE_NAME = 3;
 
 	private String path;
 	private String todaysDate = "";
 	private String mergedFile;
-	private String tempFile;
 	private ArrayList<File> files;
 	private ArrayList<String> fileNames;
 	private Font catFont = new Font(Font.FontFamily.TIMES_ROMAN, 18, Font.BOLD);
 	private Font smallBold = new Font(Font.FontFamily.TIMES_ROMAN, 12, Font.BOLD);
 
-	public Map<String, PdfReader> filesToMerge;
+	private List<MergeInput> inputs;
 	private List<String> titles;
+	private ExecutorService executor;
+	private int threads = Math.max(1,
+			Integer.getInteger("opcua.merge.threads", Runtime.getRuntime().availableProcessors()));
+	private int groupSize = Math.max(1, Integer.getInteger("opcua.merge.groupSize", 8));
 
 	public void startMerging() {
 		setFileNames();
 		setTodaysDate();
 		createResultFile();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "merge");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		try {
-			readBookmarks();
-			createTempContentFile();
-			setDocuments();
-			createBarChart();
+			readInputs();
+			extractSections();
 			createMergedPdf();
-			cleanUp();
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
-	public void setFiles(String file1, String file2, String file3) {
+	public void setFiles(List<String> filePaths) {
 		files = new ArrayList<>();
-		files.add(new File(file1));
-		files.add(new File(file2));
-		files.add(new File(file3));
+		for (String filePath : filePaths)
+			files.add(new File(filePath));
 	}
 
 	public void setPath(String path) {
 		this.path = path;
-		tempFile = path + File.separator + "output" + File.separator + "temp";
-
 	}
 
+	/*
+	 * Reports are named device-yyyy-MM-dd.pdf, and device names may contain
+	 * dashes themselves.
+	 */
 	public void setFileNames() {
 		fileNames = new ArrayList<>();
 		for (File file : files) {
-			fileNames.add(file.getName().substring(0, file.getName().indexOf("-")));
+			Matcher matcher = REPORT_NAME.matcher(file.getName());
+			if (matcher.matches())
+				fileNames.add(matcher.group("name"));
+			else
+				fileNames.add(file.getName().replaceFirst("\\.pdf$", ""));
 		}
 	}
 
@@ -105,8 +130,10 @@ public class Merger {
 
 	public void createResultFile() {
 		try {
-			mergedFile = path + File.separator + "merged-result-opcua" + String.join("-", fileNames) +"-"+todaysDate
-					+ ".pdf";
+			String names = String.join("-", fileNames.subList(0, Math.min(NAMES_IN_FILE_NAME, fileNames.size())));
+			if (fileNames.size() > NAMES_IN_FILE_NAME)
+				names += "-and-" + (fileNames.size() - NAMES_IN_FILE_NAME) + "-more";
+			mergedFile = path + File.separator + "merged-result-opcua" + names + "-" + todaysDate + ".pdf";
 			File file = new File(mergedFile);
 			file.createNewFile();
 		} catch (IOException e) {
@@ -114,122 +141,105 @@ public class Merger {
 		}
 	}
 
-	public void setDocuments() throws IOException {
-		filesToMerge = new TreeMap<String, PdfReader>();
-		for (File file : files)
-			filesToMerge.put(file.getName(), new PdfReader(file.getAbsolutePath()));
-
-	}
-
-	public void readBookmarks() throws IOException {
-		titles = new ArrayList<String>();
-		PdfReader reader = new PdfReader(files.get(0).getAbsolutePath());
-		List<HashMap<String, Object>> bookmarks = SimpleBookmark.getBookmark(reader);
-		for (int i = 0; i < bookmarks.size(); i++) {
-			HashMap<String, Object> bm = bookmarks.get(i);
-			titles.add(((String) bm.get("Title")));
-		}
-		for (int i = 1; i < files.size(); i++) {
-			ArrayList<String> otherList = new ArrayList<>();
-
-			reader = new PdfReader(files.get(i).getAbsolutePath());
-			bookmarks = SimpleBookmark.getBookmark(reader);
-			for (int j = 0; j < bookmarks.size(); j++) {
-				HashMap<String, Object> bm = bookmarks.get(j);
-				otherList.add(((String) bm.get("Title")));
-			}
-
-			titles.retainAll(otherList);
-
+	/*
+	 * Reads the bookmarks of every input on the pool. The titles of the first
+	 * input are kept in their order and narrowed down to the titles of each
+	 * further input as soon as it has been read.
+	 */
+	public void readInputs() throws IOException, InterruptedException {
+		List<Future<MergeInput>> futures = new ArrayList<>();
+		for (final File file : files)
+			futures.add(executor.submit(new Callable<MergeInput>() {
+				public MergeInput call() throws IOException {
+					return MergeInput.read(file);
+				}
+			}));
+		inputs = new ArrayList<>();
+		for (Future<MergeInput> future : futures) {
+			MergeInput input = get(future);
+			if (inputs.isEmpty())
+				titles = new ArrayList<String>(input.getTitles());
+			else
+				titles.retainAll(new HashSet<String>(input.getTitles()));
+			inputs.add(input);
 		}
 	}
 
-	public void createTempContentFile() throws IOException {
-		for (int i = 0; i < files.size(); i++) {
-
-			PdfReader reader = new PdfReader(files.get(i).getAbsolutePath());
-			PdfReaderContentParser parser = new PdfReaderContentParser(reader);
-			PrintWriter out = new PrintWriter(new FileOutputStream(tempFile + "_" + String.valueOf(i) + ".txt"));
-			TextExtractionStrategy strategy;
-			for (int j = 1; j <= reader.getNumberOfPages(); j++) {
-				strategy = parser.processContent(j, new SimpleTextExtractionStrategy());
-				out.println(strategy.getResultantText());
-			}
-			reader.close();
-			out.flush();
-			out.close();
-		}		
+	/*
+	 * Extracts only the sections that are charted, i.e. the common ones
+	 * without networking results. The pages of every input are split into
+	 * jobs so that all threads have work even when only a few large reports
+	 * are merged.
+	 */
+	public void extractSections() throws IOException, InterruptedException {
+		Set<String> chartedTitles = new HashSet<>();
+		for (String title : titles)
+			if (!title.contains("Networking"))
+				chartedTitles.add(title);
+		int jobsPerInput = (threads + inputs.size() - 1) / inputs.size();
+		List<Future<Void>> futures = new ArrayList<>();
+		for (MergeInput input : inputs)
+			for (Callable<Void> job : input.createExtractionJobs(chartedTitles, jobsPerInput))
+				futures.add(executor.submit(job));
+		for (Future<Void> future : futures)
+			get(future);
+		for (MergeInput input : inputs)
+			input.finishExtraction(chartedTitles);
 	}
 
-	public String txtToString(String filePath) throws IOException {
-		StringBuilder contentBuilder = new StringBuilder();
-		try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-
-			String sCurrentLine;
-			while ((sCurrentLine = br.readLine()) != null) {
-				contentBuilder.append(sCurrentLine).append("\n");
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
+	private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
 		}
-		return contentBuilder.toString();
 	}
 
-	public void createBarChart() throws IOException {
-		for (int i = 0; i < titles.size(); i++) {
-			if (!titles.get(i).contains("Networking")) {
-				JFreeChart barChart = ChartFactory.createBarChart("Testing Results", titles.get(i),
-						"Time (milliseconds)", createDataset(i), PlotOrientation.VERTICAL, true, true, false);
-
-				CategoryItemRenderer renderer = ((CategoryPlot) barChart.getPlot()).getRenderer();
-
-				renderer.setDefaultItemLabelGenerator(new StandardCategoryItemLabelGenerator());
-				renderer.setDefaultItemLabelsVisible(true);
-				ItemLabelPosition position = new ItemLabelPosition(ItemLabelAnchor.OUTSIDE12, TextAnchor.TOP_CENTER);
-				renderer.setDefaultPositiveItemLabelPosition(position);
-
-				File file = new File(System.getProperty("user.dir") + File.separator + "output" + File.separator
-						+ titles.get(i).replaceAll(" ", "") + ".jpg");
-				ChartUtils.saveChartAsJPEG(file, barChart, 500, 300);
-			} else
-				continue;
-
+	/*
+	 * One chart per group of devices.
+	 */
+	public List<JFreeChart> createBarCharts(String title) {
+		List<JFreeChart> charts = new ArrayList<>();
+		int groups = (inputs.size() + groupSize - 1) / groupSize;
+		for (int group = 0; group < groups; group++) {
+			int from = group * groupSize, to = Math.min(inputs.size(), from + groupSize);
+			String chartTitle = "Testing Results";
+			if (groups > 1)
+				chartTitle += " (" + (from + 1) + "-" + to + " of " + inputs.size() + ")";
+			JFreeChart barChart = ChartFactory.createBarChart(chartTitle, title, "Time (milliseconds)",
+					createDataset(title, from, to), PlotOrientation.VERTICAL, true, true, false);
+
+			CategoryItemRenderer renderer = ((CategoryPlot) barChart.getPlot()).getRenderer();
+
+			renderer.setDefaultItemLabelGenerator(new StandardCategoryItemLabelGenerator());
+			renderer.setDefaultItemLabelsVisible(true);
+			ItemLabelPosition position = new ItemLabelPosition(ItemLabelAnchor.OUTSIDE12, TextAnchor.TOP_CENTER);
+			renderer.setDefaultPositiveItemLabelPosition(position);
+
+			charts.add(barChart);
 		}
-
+		return charts;
 	}
 
-	public CategoryDataset createDataset(int index) throws IOException {
+	public CategoryDataset createDataset(String title, int from, int to) {
 		final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-		addToDataset(dataset, index);
+		addToDataset(dataset, title, from, to);
 		return dataset;
 	}
 
-	private Matcher findNthMatcherOccurance(int n, Pattern p, CharSequence src) {
-		Matcher match = p.matcher(src);
-		for (int i = 0; i <= n; i++)
-			match.find();
-		return match;
-	}
-
-	public void addToDataset(DefaultCategoryDataset dataset, int index) throws IOException {
-		ArrayList<Double> test = new ArrayList<>();
-		String regex = "(?<total>\\d+)\\s+(?<min>\\d+)\\s+(?<max>\\d+)\\s+(?<avg>\\d+)\\s+(?<co>\\d+.\\d+)+\\s+(?<std>\\d+.\\d+)";
-		for (int i = 0; i < files.size(); i++) {
-			String content = txtToString(tempFile + "_" + String.valueOf(i) + ".txt");
-			Pattern pattern = Pattern.compile(regex);
-			Matcher mat = findNthMatcherOccurance(index, pattern, content);
-			dataset.addValue(Double.parseDouble(mat.group("total")), fileNames.get(i), "Total");
-			dataset.addValue(Double.parseDouble(mat.group("min")), fileNames.get(i), "Min");
-			dataset.addValue(Double.parseDouble(mat.group("max")), fileNames.get(i), "Max");
-			dataset.addValue(Double.parseDouble(mat.group("avg")), fileNames.get(i), "Avg");
-			dataset.addValue(Double.parseDouble(mat.group("co")), fileNames.get(i), "Co");
-			dataset.addValue(Double.parseDouble(mat.group("std")), fileNames.get(i), "Std");
-			test.add(Double.parseDouble(mat.group("total")));
-
+	public void addToDataset(DefaultCategoryDataset dataset, String title, int from, int to) {
+		for (int i = from; i < to; i++) {
+			Statistics row = inputs.get(i).getStatistics(title);
+			if (row == null)
+				continue;
+			for (int j = 0; j < Statistics.NAMES.length; j++)
+				dataset.addValue(row.getValue(j), fileNames.get(i), Statistics.NAMES[j]);
 		}
 	}
 
-	public void createMergedPdf() throws IOException, DocumentException {
+	public void createMergedPdf() throws IOException, DocumentException, InterruptedException {
 		Document document = new Document();
 		File file = new File(mergedFile);
 		file.getParentFile().mkdirs();
@@ -245,44 +255,40 @@ public class Merger {
 		preface.add(new Paragraph("This document describes merged results of testing", smallBold));
 		document.add(preface);
 
-		for (int i = 0; i < titles.size(); i++) {
-			if (!titles.get(i).contains("Networking")) {
-				Paragraph paragraph = new Paragraph();
-				addEmptyLine(paragraph, 1);
-				document.add(paragraph);
-				PdfOutline root = writer.getRootOutline();
-				PdfOutline bookmarks = new PdfOutline(root,
-						new PdfDestination(PdfDestination.FITH, writer.getVerticalPosition(true)), titles.get(i), true);
-				File pictureFile = new File(
-						path + File.separator + "output" + File.separator + titles.get(i).replaceAll(" ", "") + ".jpg");
-				Image image = Image.getInstance(pictureFile.getAbsolutePath());
-				document.add(image);
-			}
-
+		ArrayDeque<String> pendingTitles = new ArrayDeque<>();
+		ArrayDeque<Future<byte[]>> renderedCharts = new ArrayDeque<>();
+		for (final String title : titles) {
+			if (title.contains("Networking"))
+				continue;
+			pendingTitles.add(title);
+			renderedCharts.add(executor.submit(new Callable<byte[]>() {
+				public byte[] call() throws DocumentException {
+					return PdfCharts.createPdf(createBarCharts(title));
+				}
+			}));
+			while (renderedCharts.size() > 2 * threads)
+				writeSection(document, writer, pendingTitles.poll(), get(renderedCharts.poll()));
 		}
+		while (!renderedCharts.isEmpty())
+			writeSection(document, writer, pendingTitles.poll(), get(renderedCharts.poll()));
 		document.close();
 	}
 
+	private void writeSection(Document document, PdfWriter writer, String title, byte[] charts)
+			throws IOException, DocumentException {
+		Paragraph paragraph = new Paragraph();
+		addEmptyLine(paragraph, 1);
+		document.add(paragraph);
+		PdfOutline root = writer.getRootOutline();
+		new PdfOutline(root, new PdfDestination(PdfDestination.FITH, writer.getVerticalPosition(true)), title, true);
+		for (Image image : PdfCharts.importImages(writer, charts))
+			document.add(image);
+	}
+
 	private void addEmptyLine(Paragraph paragraph, int number) {
 		for (int i = 0; i < number; i++) {
 			paragraph.add(new Paragraph(" "));
 		}
 	}
 
-	private void cleanUp() throws IOException {
-		for (int i = 0; i < titles.size(); i++) {
-			if (!titles.get(i).contains("Networking")) {
-				File pictureFile = new File(
-						path + File.separator + "output" + File.separator + titles.get(i).replaceAll(" ", "") + ".jpg");
-				pictureFile.delete();
-			}
-		}
-
-		for (int i = 0; i <= files.size(); i++) {
-			File file = new File(path + File.separator + "output" + File.separator + "temp_" + i + ".txt");
-			file.delete();
-
-		}
-	}
-
 }
@@ -0,0 +1,51 @@
+package reporting;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+public class CsvExporter extends ResultExporter {
+	private BufferedWriter writer;
+
+	@Override
+	public void startDocument(File file) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8),
+				BUFFER_SIZE);
+		writeRow(COLUMNS);
+	}
+
+	@Override
+	protected void writeSection(TestSection section) throws IOException {
+		if (section.isNetworking())
+			for (SweepPoint point : section.getSweepPoints())
+				writeRow(toRow(section, point));
+		else
+			for (StatRow row : section.getStatRows())
+				writeRow(toRow(section, row));
+	}
+
+	@Override
+	public void finishDocument() throws IOException {
+		if (writer != null)
+			writer.close();
+	}
+
+	private void writeRow(Object[] cells) throws IOException {
+		for (int i = 0; i < cells.length; i++) {
+			if (i > 0)
+				writer.write(',');
+			if (cells[i] != null)
+				writer.write(escape(String.valueOf(cells[i])));
+		}
+		writer.newLine();
+	}
+
+	private String escape(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+			return value;
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -3,80 +3,81 @@ package reporting;
 
 
 import java.io.File;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.URI;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-public class ExcelParser {
+public class ExcelParser implements SectionListener {
 	private static List<String> formats = Arrays.asList(new String[] { "csv", "xml", "xlsx-single", "xlsx-multiple" });
 	//private String txtFile = System.getProperty("user.dir")+File.separator+"input"+File.separator+"omega2plus.txt";
 	private File txtFile;
 	//private String csvFile=  System.getProperty("user.dir")+File.separator+"output"+File.separator+"omega2plus.csv";
-	private String csvFile;
+	private String outputFile;
 	private String filePath;
+	private String format = "csv";
+	private ResultExporter exporter;
 	public void setTxtFile(File txtFile) {
 		this.txtFile = txtFile;
 	}
 	public void setPath(String filePath) {
 		this.filePath = filePath;
 	}
-	
-	public void createCsvFile() {
-		  csvFile = txtFile.getAbsolutePath().substring(0, txtFile.getAbsolutePath().lastIndexOf('.'));
-		  csvFile += "." + ".csv";	
+	public void setFormat(String format) {
+		if(!formats.contains(format))
+			throw new IllegalArgumentException("Unknown format " + format + ", expected one of " + formats);
+		this.format = format;
 	}
-
 	
+	public void setOutputFile(String outputFile) {
+		this.outputFile = outputFile;
+	}
 	
+	public String getOutputFile() {
+		if(outputFile == null)
+			createOutputFile();
+		return outputFile;
+	}
 	
-	public void startExcelParsing() {
-		//final Path path = Paths.get(System.getProperty("user.dir")+File.separator+"output");
-		final Path path = Paths.get(filePath);
-	    final Path txt = path.resolve(txtFile.getAbsolutePath());
-	    final Path csv = path.resolve(csvFile);
-	    final Charset utf8 = Charset.forName("UTF-8");
-		 
-		    try (Stream<String> stream = Files.lines(Paths.get(txtFile.getAbsolutePath()))) {
-		        String result = stream.map(s -> s.split("\\s+"))
-		                              .map(s -> Arrays.stream(s).collect(Collectors.joining(" "))+"\n")
-		                              .collect(Collectors.joining());
-		        
-		    //    final PrintWriter pw = new PrintWriter(Files.newBufferedWriter(csv, Charset.forName("UTF-8"), StandardOpenOption.CREATE_NEW));
-		        PrintWriter pw = new PrintWriter(csvFile);
-		        pw.println(result);
-		        System.out.println(result);
-		        pw.close();
-		    } catch (IOException e) {
-		        e.printStackTrace();
-		    }
-		
-		
+	public void createOutputFile() {
+		  String name = txtFile.getName().indexOf('.') > 0 ? txtFile.getName().substring(0, txtFile.getName().lastIndexOf('.')) : txtFile.getName();
+		  outputFile = (filePath != null ? filePath : txtFile.getParent()) + File.separator + name;
+		  outputFile += "." + (format.startsWith("xlsx") ? "xlsx" : format);	
+	}
 
-//	    
-//	    try{
-//	    	 final Scanner scanner = new Scanner(Files.newBufferedReader(txt, utf8));
-//	         final PrintWriter pw = new PrintWriter(Files.newBufferedWriter(csv, utf8, StandardOpenOption.CREATE_NEW));
-//	        while (scanner.hasNextLine()) 
-//	            pw.println(scanner.nextLine().replace('|', ','));
-//	            
-//	          
-//	            
-//	    }  catch(Exception e) {
-//			e.printStackTrace();
-//		}
+	public void startDocument() {
+		getOutputFile();
+		switch(format) {
+		case "xml" :
+			exporter = new XmlExporter();
+			break;
+		case "xlsx-single" :
+			exporter = new XlsxExporter(false);
+			break;
+		case "xlsx-multiple" :
+			exporter = new XlsxExporter(true);
+			break;
+		default :
+			exporter = new CsvExporter();
+		}
+		try {
+			exporter.startDocument(new File(getOutputFile()));
+		} catch (Exception e) {
+			e.printStackTrace();
+			exporter = null;
+		}
 	}
-}
-	    
-	
 	
+	@Override
+	public void onSection(TestSection section) {
+		if(exporter != null)
+			exporter.onSection(section);
+	}
 	
+	public void finishDocument() {
+		try {
+			if(exporter != null)
+				exporter.finishDocument();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package reporting;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * On-disk cache of rendered report fragments, keyed by a hash of the parsed
+ * section. A report that is built again after one more suite was run only
+ * draws the charts of the new sections; everything else is read back from
+ * here. The least recently used fragments are removed once the cache grows
+ * beyond opcua.report.cacheSize megabytes (256 by default).
+ */
+public class FragmentCache {
+	/* Bump whenever the look of a rendered fragment changes. */
+	private static final int RENDER_VERSION = 1;
+	private static FragmentCache instance;
+
+	private File directory;
+	private long maxSize;
+	private long currentSize = -1;
+
+	private FragmentCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		directory.mkdirs();
+	}
+
+	public static synchronized FragmentCache getInstance() {
+		if (instance == null)
+			instance = new FragmentCache(
+					new File(System.getProperty("user.home") + File.separator + "opc-ua-deployment-tool-cache"
+							+ File.separator + "report-fragments"),
+					Long.getLong("opcua.report.cacheSize", 256) * 1024 * 1024);
+		return instance;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("opcua.report.cache", "true"));
+	}
+
+	public static String getKey(TestSection section) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer buffer = ByteBuffer.allocate(28);
+			buffer.putInt(RENDER_VERSION).putInt(PdfCharts.WIDTH).putInt(PdfCharts.HEIGHT);
+			digest.update(buffer.array(), 0, buffer.position());
+			digest.update(section.getTitle().getBytes(StandardCharsets.UTF_8));
+			for (SweepPoint point : section.getSweepPoints()) {
+				buffer.clear();
+				buffer.putInt(point.getMessageSize()).putLong(Double.doubleToLongBits(point.getRtt()))
+						.putLong(Double.doubleToLongBits(point.getBandwidth()));
+				digest.update(buffer.array(), 0, buffer.position());
+			}
+			for (StatRow row : section.getStatRows()) {
+				digest.update(row.getLabel().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				if (row.hasValue())
+					digest.update(row.getValue().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 1);
+			}
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest())
+				key.append(String.format("%02x", b));
+			return key.toString();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public byte[] get(String key) {
+		File file = new File(directory, key + ".pdf");
+		try {
+			byte[] fragment = Files.readAllBytes(file.toPath());
+			file.setLastModified(System.currentTimeMillis());
+			return fragment;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	public void put(String key, byte[] fragment) {
+		try {
+			File temporary = File.createTempFile(key, ".tmp", directory);
+			Files.write(temporary.toPath(), fragment);
+			Files.move(temporary.toPath(), new File(directory, key + ".pdf").toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			added(fragment.length);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private synchronized void added(long length) {
+		if (currentSize >= 0)
+			currentSize += length;
+		if (currentSize < 0 || currentSize > maxSize)
+			trim();
+	}
+
+	private void trim() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".pdf"));
+		if (files == null)
+			return;
+		long size = 0;
+		for (File file : files)
+			size += file.length();
+		if (size > maxSize) {
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+			for (int i = 0; i < files.length && size > maxSize; i++) {
+				long length = files[i].length();
+				if (files[i].delete())
+					size -= length;
+			}
+		}
+		currentSize = size;
+	}
+}
@@ -0,0 +1,136 @@
+package reporting;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the report while the tests are still running. Output lines are fed
+ * in as they are produced; whenever a section ends the report is written
+ * again with all sections finished so far, at most once every
+ * opcua.report.liveInterval milliseconds (1000 by default). Every report is
+ * written to a temporary file first and then moved over the previous one,
+ * so the partial report can be opened at any time. finish() writes the
+ * final report right away. Results are not recorded here; like any other
+ * run they go to the result store when the report is made from the raw file.
+ */
+public class LiveReporter {
+	private String path, deviceName, reportType;
+	private long interval;
+	private SectionScanner scanner;
+	private List<TestSection> sections;
+	private boolean rebuildScheduled;
+	private volatile long lastBuild;
+	private ScheduledThreadPoolExecutor scheduler;
+	private boolean finished;
+
+	public LiveReporter(String path, String deviceName, String reportType) {
+		this.path = path;
+		this.deviceName = deviceName;
+		this.reportType = reportType;
+		interval = Long.getLong("opcua.report.liveInterval", 1000);
+		sections = new ArrayList<>();
+		scanner = new SectionScanner(new SectionListener() {
+			public void onSection(TestSection section) {
+				sections.add(section);
+				scheduleRebuild();
+			}
+		});
+		scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "live-report");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.getBoolean("opcua.report.live");
+	}
+
+	public synchronized void onLine(String line) {
+		scanner.accept(line);
+	}
+
+	private void scheduleRebuild() {
+		if (rebuildScheduled)
+			return;
+		rebuildScheduled = true;
+		long delay = Math.max(0, lastBuild + interval - System.currentTimeMillis());
+		scheduler.schedule(new Runnable() {
+			public void run() {
+				List<TestSection> snapshot;
+				synchronized (LiveReporter.this) {
+					if (finished)
+						return;
+					snapshot = new ArrayList<>(sections);
+					rebuildScheduled = false;
+				}
+				writeReport(snapshot);
+				lastBuild = System.currentTimeMillis();
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	public void finish() {
+		List<TestSection> snapshot;
+		synchronized (this) {
+			scanner.finish();
+			finished = true;
+			snapshot = new ArrayList<>(sections);
+		}
+		try {
+			scheduler.submit(new Runnable() {
+				public void run() {
+					writeReport(snapshot);
+				}
+			}).get();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	private void writeReport(List<TestSection> snapshot) {
+		try {
+			String outputFile;
+			String temporaryFile;
+			if (".pdf".equals(reportType)) {
+				PdfParser pdfParser = new PdfParser();
+				pdfParser.setPath(path);
+				pdfParser.setDeviceName(deviceName);
+				outputFile = pdfParser.getOutputFile();
+				temporaryFile = outputFile + ".part";
+				pdfParser.setOutputFile(temporaryFile);
+				pdfParser.startDocument();
+				for (TestSection section : snapshot)
+					pdfParser.onSection(section);
+				pdfParser.finishDocument();
+			} else {
+				ExcelParser excelParser = new ExcelParser();
+				excelParser.setTxtFile(new File(path + File.separator + "opc_ua_automated_test_tool_raw.txt"));
+				excelParser.setPath(path);
+				excelParser.setFormat(reportType.substring(1));
+				outputFile = excelParser.getOutputFile();
+				temporaryFile = outputFile + ".part";
+				excelParser.setOutputFile(temporaryFile);
+				excelParser.startDocument();
+				for (TestSection section : snapshot)
+					excelParser.onSection(section);
+				excelParser.finishDocument();
+			}
+			Files.move(new File(temporaryFile).toPath(), new File(outputFile).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package reporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+
+/**
+ * Section scanner for very large raw files. The file is memory mapped in
+ * chunks that end at line boundaries and the chunks are searched for section
+ * markers in parallel on a fork-join pool. The markers are then paired in file
+ * order exactly like SectionScanner does it, and the sections are decoded and
+ * parsed in parallel again before they are handed to the listener in order.
+ */
+public class MappedLogScanner {
+	private static final byte[] START_MARKER = "Starting".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] END_MARKER = "Ending".getBytes(StandardCharsets.ISO_8859_1);
+	private static final int MAX_MARKER_TEXT = 512;
+
+	private File file;
+	private int parallelism;
+	private long chunkSize;
+	private Charset charset;
+
+	public MappedLogScanner(File file) {
+		this.file = file;
+		parallelism = Math.max(1, Integer.getInteger("opcua.report.threads", Runtime.getRuntime().availableProcessors()));
+		chunkSize = Long.getLong("opcua.report.chunkSize", 32L * 1024 * 1024);
+		charset = Charset.defaultCharset();
+	}
+
+	/*
+	 * Raw files above opcua.report.mappedThreshold bytes (64 MB by default)
+	 * are scanned with this class; -Dopcua.report.mapped=true|false forces
+	 * the choice.
+	 */
+	public static boolean isPreferredFor(File file) {
+		String mapped = System.getProperty("opcua.report.mapped");
+		if (mapped != null)
+			return Boolean.parseBoolean(mapped);
+		return file.length() > Long.getLong("opcua.report.mappedThreshold", 64L * 1024 * 1024);
+	}
+
+	public void scan(SectionListener listener) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			List<long[]> chunks = splitIntoChunks(channel);
+			List<Marker> markers = pool.invoke(new ChunkScan(channel, chunks, 0, chunks.size()));
+			List<SectionRange> sections = pairMarkers(markers);
+			parseSections(pool, channel, sections, listener);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+		List<long[]> chunks = new ArrayList<>();
+		long size = channel.size();
+		long start = 0;
+		while (start < size) {
+			long end = Math.min(size, start + chunkSize);
+			if (end < size)
+				end = nextLineStart(channel, end);
+			chunks.add(new long[] { start, end });
+			start = end;
+		}
+		return chunks;
+	}
+
+	private long nextLineStart(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long size = channel.size();
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0)
+				break;
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n')
+					return position + i + 1;
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private class ChunkScan extends RecursiveTask<List<Marker>> {
+		private static final long serialVersionUID = 1L;
+		private FileChannel channel;
+		private List<long[]> chunks;
+		private int from, to;
+
+		ChunkScan(FileChannel channel, List<long[]> chunks, int from, int to) {
+			this.channel = channel;
+			this.chunks = chunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Marker> compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				ChunkScan left = new ChunkScan(channel, chunks, from, middle);
+				ChunkScan right = new ChunkScan(channel, chunks, middle, to);
+				left.fork();
+				List<Marker> markers = right.compute();
+				List<Marker> result = left.join();
+				result.addAll(markers);
+				return result;
+			}
+			List<Marker> markers = new ArrayList<>();
+			if (to > from) {
+				try {
+					scanChunk(channel, chunks.get(from)[0], chunks.get(from)[1], markers);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return markers;
+		}
+	}
+
+	/*
+	 * Only lines that contain a marker are turned into strings. They are
+	 * decoded byte by byte, so string indexes are file offsets relative to
+	 * the line start.
+	 */
+	private void scanChunk(FileChannel channel, long start, long end, List<Marker> markers) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		int limit = buffer.limit();
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = lineStart;
+			while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r')
+				lineEnd++;
+			if (indexOf(buffer, START_MARKER, lineStart, lineEnd) >= 0 || indexOf(buffer, END_MARKER, lineStart, lineEnd) >= 0)
+				scanLine(buffer, start, lineStart, readLatin1(buffer, lineStart, lineEnd), markers);
+			lineStart = lineEnd + 1;
+			if (lineEnd < limit && buffer.get(lineEnd) == '\r' && lineStart < limit && buffer.get(lineStart) == '\n')
+				lineStart++;
+		}
+	}
+
+	private void scanLine(MappedByteBuffer buffer, long chunkStart, int lineStart, String line, List<Marker> markers) {
+		long lineOffset = chunkStart + lineStart;
+		Matcher matcher = SectionScanner.TITLE_PATTERN.matcher(line);
+		matcher.useTransparentBounds(true);
+		int startIndex = line.indexOf("Starting");
+		int endIndex = line.indexOf("Ending");
+		while (startIndex >= 0 || endIndex >= 0) {
+			if (startIndex >= 0 && (endIndex < 0 || startIndex < endIndex)) {
+				matcher.region(startIndex, line.length());
+				if (matcher.lookingAt()) {
+					String marker = matcher.group();
+					int titleStart = startIndex + marker.indexOf("g") + 1;
+					int titleEnd = startIndex + marker.indexOf("T");
+					markers.add(Marker.start(lineOffset + startIndex, line.substring(titleStart, titleEnd),
+							decode(buffer, lineStart + titleStart, titleEnd - titleStart)));
+				}
+				startIndex = line.indexOf("Starting", startIndex + 1);
+			} else {
+				markers.add(Marker.end(lineOffset + endIndex,
+						line.substring(endIndex, Math.min(line.length(), endIndex + MAX_MARKER_TEXT))));
+				endIndex = line.indexOf("Ending", endIndex + 1);
+			}
+		}
+	}
+
+	private List<SectionRange> pairMarkers(List<Marker> markers) {
+		List<SectionRange> sections = new ArrayList<>();
+		Marker open = null;
+		long contentStart = 0, cursor = 0;
+		for (Marker marker : markers) {
+			if (marker.offset < cursor)
+				continue;
+			if (open == null) {
+				if (marker.start) {
+					open = marker;
+					contentStart = marker.offset + START_MARKER.length + marker.key.length();
+				}
+			} else if (marker.start && marker.offset >= contentStart) {
+				sections.add(new SectionRange(open.title, -1, -1));
+				open = marker;
+				contentStart = marker.offset + START_MARKER.length + marker.key.length();
+			} else if (!marker.start && marker.offset >= contentStart && marker.text.startsWith("Ending" + open.key)) {
+				sections.add(new SectionRange(open.title, contentStart, marker.offset));
+				cursor = marker.offset + END_MARKER.length + open.key.length();
+				open = null;
+			}
+		}
+		if (open != null)
+			sections.add(new SectionRange(open.title, -1, -1));
+		return sections;
+	}
+
+	/*
+	 * Sections are parsed a window at a time, so only a bounded number of
+	 * decoded sections is held in memory while the listener catches up.
+	 */
+	private void parseSections(ForkJoinPool pool, FileChannel channel, List<SectionRange> sections,
+			SectionListener listener) {
+		int window = parallelism * 4;
+		for (int from = 0; from < sections.size(); from += window) {
+			List<ForkJoinTask<TestSection>> tasks = new ArrayList<>();
+			for (int i = from; i < Math.min(sections.size(), from + window); i++) {
+				SectionRange range = sections.get(i);
+				tasks.add(pool.submit(new Callable<TestSection>() {
+					public TestSection call() throws Exception {
+						return ResultParser.parse(range.title, readContent(channel, range));
+					}
+				}));
+			}
+			for (ForkJoinTask<TestSection> task : tasks)
+				listener.onSection(task.join());
+		}
+	}
+
+	private String readContent(FileChannel channel, SectionRange range) throws IOException {
+		if (range.start < 0)
+			return "no match";
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start, range.end - range.start);
+		String content = charset.decode(buffer).toString();
+		return content.replaceAll("\r\n|\r|\n", System.lineSeparator());
+	}
+
+	private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int to) {
+		outer: for (int i = from; i <= to - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (buffer.get(i + j) != pattern[j])
+					continue outer;
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private String decode(ByteBuffer buffer, int from, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(from);
+		slice.limit(from + length);
+		return charset.decode(slice).toString();
+	}
+
+	private static String readLatin1(ByteBuffer buffer, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(from + i);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	private static class Marker {
+		boolean start;
+		long offset;
+		String key, title, text;
+
+		static Marker start(long offset, String key, String title) {
+			Marker marker = new Marker();
+			marker.start = true;
+			marker.offset = offset;
+			marker.key = key;
+			marker.title = title;
+			return marker;
+		}
+
+		static Marker end(long offset, String text) {
+			Marker marker = new Marker();
+			marker.offset = offset;
+			marker.text = text;
+			return marker;
+		}
+	}
+
+	private static class SectionRange {
+		String title;
+		long start, end;
+
+		SectionRange(String title, long start, long end) {
+			this.title = title;
+			this.start = start;
+			this.end = end;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package reporting;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jfree.chart.JFreeChart;
+
+import com.itextpdf.awt.PdfGraphics2D;
+import com.itextpdf.text.BadElementException;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfImportedPage;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/*
+ * Draws charts straight into a PDF template, so they end up as vector
+ * graphics in the document without an image file in between. Charts can
+ * also be drawn into a standalone one page PDF on any thread and imported
+ * into the report later.
+ */
+public class PdfCharts {
+	public static final int WIDTH = 500, HEIGHT = 300;
+
+	public static Image createImage(PdfWriter writer, JFreeChart chart) throws BadElementException {
+		return createImage(writer, chart, WIDTH, HEIGHT);
+	}
+
+	public static Image createImage(PdfWriter writer, JFreeChart chart, int width, int height)
+			throws BadElementException {
+		PdfTemplate template = writer.getDirectContent().createTemplate(width, height);
+		Graphics2D graphics = new PdfGraphics2D(template, width, height);
+		try {
+			chart.draw(graphics, new Rectangle2D.Double(0, 0, width, height));
+		} finally {
+			graphics.dispose();
+		}
+		return Image.getInstance(template);
+	}
+
+	/*
+	 * One page per chart.
+	 */
+	public static byte[] createPdf(List<JFreeChart> charts) throws DocumentException {
+		ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+		Document document = new Document(new Rectangle(WIDTH, HEIGHT), 0, 0, 0, 0);
+		PdfWriter writer = PdfWriter.getInstance(document, outStream);
+		document.open();
+		for (JFreeChart chart : charts) {
+			document.newPage();
+			Graphics2D graphics = new PdfGraphics2D(writer.getDirectContent(), WIDTH, HEIGHT);
+			try {
+				chart.draw(graphics, new Rectangle2D.Double(0, 0, WIDTH, HEIGHT));
+			} finally {
+				graphics.dispose();
+			}
+		}
+		document.close();
+		return outStream.toByteArray();
+	}
+
+	/*
+	 * Must be called on the thread that writes the report.
+	 */
+	public static List<Image> importImages(PdfWriter writer, byte[] pdf) throws IOException, BadElementException {
+		PdfReader reader = new PdfReader(pdf);
+		try {
+			List<Image> images = new ArrayList<>();
+			for (int i = 1; i <= reader.getNumberOfPages(); i++)
+				images.add(Image.getInstance(writer.getImportedPage(reader, i)));
+			writer.freeReader(reader);
+			return images;
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -4,13 +4,19 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.data.category.DefaultCategoryDataset;
@@ -28,11 +34,15 @@ import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 
 
-public class PdfParser {
+public class PdfParser implements SectionListener {
 	private ArrayList<String> titles,contents;
 	private Document document;
 	private PdfWriter writer;
-	private String path,deviceName;
+	private String path,deviceName,outputFile;
+	private ExecutorService renderExecutor;
+	private ArrayDeque<Future<RenderedSection>> renderedSections;
+	private FragmentCache fragmentCache = FragmentCache.isEnabled() ? FragmentCache.getInstance() : null;
+	private int renderThreads = Math.max(1, Integer.getInteger("opcua.report.threads", Runtime.getRuntime().availableProcessors()));
 	  private  Font catFont = new Font(Font.FontFamily.TIMES_ROMAN, 18,
 	            Font.BOLD);
 	  private  Font subFont = new Font(Font.FontFamily.TIMES_ROMAN, 16,
@@ -45,24 +55,53 @@ public class PdfParser {
 	 }
 	 
 	public void startReporting() {
+		startDocument();
+		addContent();
+		finishDocument();
+	}
+	
+	public void startDocument() {
 		startCreatingPdf();
 		addMetaData();
 		addTitle();
-		addContent();
-		document.close();
-		cleanUp();
+		renderExecutor = Executors.newFixedThreadPool(renderThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "report-render");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		renderedSections = new ArrayDeque<>();
+	}
+	
+	public void finishDocument() {
+		try {
+			while(!renderedSections.isEmpty())
+				writeSection(renderedSections.poll());
+		}finally {
+			renderExecutor.shutdown();
+			document.close();
+		}
 	}
 	public void setPath(String path) {
 		this.path = path;
 	}
 	
+	public void setOutputFile(String outputFile) {
+		this.outputFile = outputFile;
+	}
+	
+	public String getOutputFile() {
+		if(outputFile != null)
+			return outputFile;
+		if(deviceName != null)
+			return path+File.separator+deviceName+"-"+LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))+".pdf";
+		return path+File.separator+"Device-Name-Not-Found"+"-"+LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))+".pdf";
+	}
+	
 private void startCreatingPdf() {
 		 try {
-			 String dest="";
-			 if(deviceName != null)
-			 dest = path+File.separator+deviceName+"-"+LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))+".pdf";
-			 else
-			 dest = path+File.separator+"Device-Name-Not-Found"+"-"+LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))+".pdf";	 
+			 String dest=getOutputFile();
 		File file = new File(dest);
 		file.createNewFile();
 		document = new Document();
@@ -102,67 +141,103 @@ private void startCreatingPdf() {
 		
 	}
 	private void addContent() {
-		for(int i=0;i<titles.size();i++) {
-			try {
+		for(int i=0;i<titles.size();i++)
+			onSection(ResultParser.parse(titles.get(i),contents.get(i)));
+	}
+	
+	/*
+	 * Tables and charts are rendered on the worker pool. Finished sections
+	 * are written in the order they arrived; at most twice as many sections
+	 * as there are workers are in flight.
+	 */
+	@Override
+	public void onSection(TestSection section) {
+		renderedSections.add(renderExecutor.submit(new Callable<RenderedSection>() {
+			public RenderedSection call() throws Exception {
+				return renderSection(section);
+			}
+		}));
+		while(renderedSections.size() > 2*renderThreads || (!renderedSections.isEmpty() && renderedSections.peek().isDone()))
+			writeSection(renderedSections.poll());
+	}
+	
+	private void writeSection(Future<RenderedSection> future) {
+		RenderedSection rendered;
+		try {
+			rendered = future.get();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}catch(ExecutionException e) {
+			e.getCause().printStackTrace();
+			return;
+		}
+		try {
 			Paragraph paragraph = new Paragraph();
-			paragraph.add(new Paragraph(titles.get(i),subFont));
+			paragraph.add(new Paragraph(rendered.title,subFont));
 			addEmptyLine(paragraph, 1);
 			document.add(paragraph);
 			PdfOutline root = writer.getRootOutline();
 			PdfOutline bookmarks = new PdfOutline(root, 
 				    new PdfDestination(
 				        PdfDestination.FITH, writer.getVerticalPosition(true)),
-				        titles.get(i), true);
-			createGraphics(titles.get(i),contents.get(i));
+				        rendered.title, true);
+			for(Element element : rendered.elements)
+				document.add(element);
+			if(rendered.charts != null)
+				for(Image chart : PdfCharts.importImages(writer, rendered.charts))
+					document.add(chart);
 		}catch(Exception e) {
 			e.printStackTrace();
 		}
-		}
 	}
-	private void createGraphics(String title,String content) {
-		if(title.contains("Networking"))
-			createChart(title,content);
+	
+	/*
+	 * Charts are the expensive part of a report, so they are kept in the
+	 * fragment cache and only drawn again when the data of a section changed.
+	 */
+	private RenderedSection renderSection(TestSection section) throws Exception {
+		RenderedSection rendered = new RenderedSection(section.getTitle());
+		if(section.isNetworking()) {
+			String key = fragmentCache != null ? FragmentCache.getKey(section) : null;
+			rendered.charts = key != null ? fragmentCache.get(key) : null;
+			if(rendered.charts == null) {
+				createChart(section,rendered);
+				if(key != null)
+					fragmentCache.put(key, rendered.charts);
+			}
+		}
 		else {
-			createTable(content);
+			createTable(section,rendered);
 		}
-		
+		return rendered;
 	}	
-	private void createTable(String content) {
-		try {
-			PdfPTable table = new PdfPTable(6);
-			String[] lines = content.split(System.getProperty("line.separator"));
-			createHeaders(table,lines);
-			createRows(table,lines);
-		}catch(Exception e) {
-			e.printStackTrace();
-		}
+	private void createTable(TestSection section,RenderedSection rendered) {
+		PdfPTable table = new PdfPTable(6);
+		createHeaders(table,section.getStatRows());
+		rendered.elements.add(new PdfPTable(table));
+		createRows(table,section.getStatRows());
+		rendered.elements.add(table);
 	}
-	private void createHeaders(PdfPTable table,String[] lines) throws Exception {	
-		for(int i=0;i<lines.length;i++) {
-			if(lines[i].contains("--"))
-				continue;
-			PdfPCell cell = new PdfPCell(new Phrase(getFirstWord(lines[i])));
+	private void createHeaders(PdfPTable table,List<StatRow> rows) {	
+		for(StatRow row : rows) {
+			PdfPCell cell = new PdfPCell(new Phrase(getHeader(row)));
 			cell.setHorizontalAlignment(Element.ALIGN_CENTER);
 		    table.addCell(cell);			
 		    table.setHeaderRows(1);
 		} 
-		document.add(table);
 		
 	}
-	private void createRows(PdfPTable table,String[] lines) throws Exception{
-		for(int i=0;i<lines.length;i++) {
-			if(lines[i].contains("--"))
-				continue;
-			PdfPCell cell = new PdfPCell(new Phrase(getLastWord(lines[i])));
+	private void createRows(PdfPTable table,List<StatRow> rows) {
+		for(StatRow row : rows) {
+			PdfPCell cell = new PdfPCell(new Phrase(row.hasValue() ? row.getValue() : row.getLabel()));
 			cell.setHorizontalAlignment(Element.ALIGN_CENTER);
 		    table.addCell(cell);			
 		} 
-		document.add(table);
 	}
-	private String getFirstWord(String text) {
-		if (text.indexOf(' ') > -1) {
-			// Check if there is more than one word. 
-			text= text.substring(0, text.indexOf(' '));
+	private String getHeader(StatRow row) {
+		String text = row.getLabel();
+		if (row.hasValue()) {
 			if(text.contains("Standard"))
 				return text+" Deviation";
 				else
@@ -173,70 +248,43 @@ private void startCreatingPdf() {
 		}
 		return text;
 	}
-	private String getLastWord(String text) {
-		return text.substring(text.lastIndexOf(" ")+1);
-	}
 	
 	
 	
-	private void createChart(String title,String content) {
-		JFreeChart rttChart = ChartFactory.createLineChart(title,
+	private void createChart(TestSection section,RenderedSection rendered) throws Exception {
+		JFreeChart rttChart = ChartFactory.createLineChart(section.getTitle(),
 				"Message Size (bytes)",
 				"Rtt",
-				createRttDataset(content),PlotOrientation.VERTICAL,true,true,false);
+				createRttDataset(section),PlotOrientation.VERTICAL,true,true,false);
 			
-		JFreeChart bandWidthChart = ChartFactory.createLineChart(title,
+		JFreeChart bandWidthChart = ChartFactory.createLineChart(section.getTitle(),
 				"Message Size (bytes)",
 				"Bandwidth",
-				createBandwidthDataset(content),PlotOrientation.VERTICAL,true,true,false);
-		addChartToPdf(rttChart,"rtt");
-		addChartToPdf(bandWidthChart,"bandwidth");
-	}
-	private void addChartToPdf(JFreeChart chart,String chartname) {
-		try {
-			File file = new File(path+File.separator+chartname+".jpg");
-			ChartUtils.saveChartAsJPEG(file, chart, 500, 300);	
-			Image image = Image.getInstance(file.getAbsolutePath());
-			document.add(image);
-		}catch(Exception e) {
-			e.printStackTrace();
-		}
-		
+				createBandwidthDataset(section),PlotOrientation.VERTICAL,true,true,false);
+		rendered.charts = PdfCharts.createPdf(Arrays.asList(rttChart, bandWidthChart));
 	}
 	
-	private DefaultCategoryDataset createRttDataset(String content) {
+	private DefaultCategoryDataset createRttDataset(TestSection section) {
 		final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-		String regex = "(echo|ack)_str\\s+(?<size>\\d+)\\s+average rtt\\/request=(?<val>.*)";
-		Pattern titlePattern = Pattern.compile(regex);
-		Matcher matcher = titlePattern.matcher(content);
-		while(matcher.find()) {
-			dataset.addValue(Double.valueOf(matcher.group("size")), "rtt", matcher.group("val"));
+		for(SweepPoint point : section.getSweepPoints()) {
+			if(!Double.isNaN(point.getRtt()))
+				dataset.addValue(point.getRtt(), "rtt", Integer.valueOf(point.getMessageSize()));
 		}
 
 		return dataset;
 		
 	}
-	private DefaultCategoryDataset createBandwidthDataset(String content) {
+	private DefaultCategoryDataset createBandwidthDataset(TestSection section) {
 		final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-		String regex = "(echo|ack)_str\\s+(?<size>\\d+)\\s+(?<val>.*)\\s+kB/s";
-		Pattern titlePattern = Pattern.compile(regex);
-		Matcher matcher = titlePattern.matcher(content);
-		while(matcher.find()) {
-			dataset.addValue(Double.valueOf(matcher.group("size")), "bandwidth", matcher.group("val"));
+		for(SweepPoint point : section.getSweepPoints()) {
+			if(!Double.isNaN(point.getBandwidth()))
+				dataset.addValue(point.getBandwidth(), "bandwidth", Integer.valueOf(point.getMessageSize()));
 		}
 		
 		return dataset;
 		
 	}
 	
-	private void cleanUp() {
-		File file= new File(path+File.separator+"rtt.jpg");
-		file.delete();
-		file = new File(path+File.separator+"bandwidth.jpg");
-		file.delete();
-		
-	}
-	
 	public ArrayList<String> getTitles() {
 		return titles;
 	}
@@ -252,4 +300,14 @@ private void startCreatingPdf() {
 	public void setContents(ArrayList<String> contents) {
 		this.contents = contents;
 	}
+
+	private static class RenderedSection {
+		String title;
+		List<Element> elements = new ArrayList<>();
+		byte[] charts;
+		
+		RenderedSection(String title) {
+			this.title = title;
+		}
+	}
 }
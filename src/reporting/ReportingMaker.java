@@ -1,6 +1,8 @@
 
 package reporting;
 
+import java.io.File;
+
 
 
 public class ReportingMaker{
@@ -8,15 +10,22 @@ public class ReportingMaker{
 private String inputPath;
 private String reportType;
 private String deviceName;
+private File rawFile;
 public ReportingMaker(String inputPath,String reportType,String deviceName) {
 	this.inputPath= inputPath;
 	this.reportType = reportType;
 	this.deviceName = deviceName;
 }
 
+	public void setRawFile(File rawFile) {
+		this.rawFile = rawFile;
+	}
+
 	public void startReporting() {
 		
 		TxtParser txtFile = new TxtParser(inputPath,deviceName,reportType);
+		if(rawFile != null)
+			txtFile.setRawFile(rawFile);
 		txtFile.startReadingFile();
 	}
 	
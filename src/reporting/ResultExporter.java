@@ -0,0 +1,59 @@
+package reporting;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Base of the streaming exporters. Every section is written as soon as it
+ * arrives, so nothing but the current section is kept in memory. The flat
+ * row layout is shared by the table formats.
+ */
+public abstract class ResultExporter implements SectionListener {
+	public static final String[] COLUMNS = { "Test", "Statistic", "Value", "Message Size (bytes)", "Rtt",
+			"Bandwidth (kB/s)" };
+	protected static final int BUFFER_SIZE = 64 * 1024;
+
+	public abstract void startDocument(File file) throws IOException;
+
+	public abstract void finishDocument() throws IOException;
+
+	@Override
+	public void onSection(TestSection section) {
+		try {
+			writeSection(section);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	protected abstract void writeSection(TestSection section) throws Exception;
+
+	protected static Object[] toRow(TestSection section, StatRow row) {
+		return new Object[] { section.getTitle().trim(), row.getLabel(), row.hasValue() ? toCell(row.getValue()) : null,
+				null, null, null };
+	}
+
+	protected static Object[] toRow(TestSection section, SweepPoint point) {
+		return new Object[] { section.getTitle().trim(), null, null, point.getMessageSize(), toCell(point.getRtt()),
+				toCell(point.getBandwidth()) };
+	}
+
+	/*
+	 * Numbers become numeric cells; NaN and Infinity have no numeric form in
+	 * the table formats and are kept as text.
+	 */
+	protected static Object toCell(String value) {
+		try {
+			Double number = Double.valueOf(value);
+			return Double.isNaN(number) || Double.isInfinite(number) ? value : number;
+		} catch (NumberFormatException e) {
+			return value;
+		}
+	}
+
+	protected static Object toCell(double value) {
+		if (Double.isNaN(value))
+			return null;
+		return Double.isInfinite(value) ? String.valueOf(value) : value;
+	}
+}
@@ -0,0 +1,98 @@
+package reporting;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Turns the text of a test section into a TestSection once, so the report
+ * writers and the merger work on numbers instead of parsing text again.
+ */
+public class ResultParser {
+	private static final Pattern RTT_PATTERN = Pattern
+			.compile("(echo|ack)_str\\s+(?<size>\\d+)\\s+average rtt\\/request=(?<val>.*)");
+	private static final Pattern BANDWIDTH_PATTERN = Pattern
+			.compile("(echo|ack)_str\\s+(?<size>\\d+)\\s+(?<val>.*)\\s+kB/s");
+	/*
+	 * A statistics table row is a line of exactly six numbers ending in two
+	 * decimals. Chart axis labels must not match, or the rows of a report
+	 * could no longer be paired with its section titles.
+	 */
+	private static final Pattern STATISTICS_PATTERN = Pattern.compile(
+			"^[ \\t]*(?<total>\\d+(\\.\\d+)?)[ \\t]+(?<min>\\d+(\\.\\d+)?)[ \\t]+(?<max>\\d+(\\.\\d+)?)[ \\t]+(?<avg>\\d+(\\.\\d+)?)"
+					+ "[ \\t]+(?<co>\\d+\\.\\d+)[ \\t]+(?<std>\\d+\\.\\d+)[ \\t]*$",
+			Pattern.MULTILINE);
+	private static final Pattern NUMBER_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?");
+
+	public static TestSection parse(String title, String content) {
+		TestSection section = new TestSection(title);
+		if (section.isNetworking())
+			parseSweepPoints(content, section.getSweepPoints());
+		else
+			parseStatRows(content, section.getStatRows());
+		return section;
+	}
+
+	/*
+	 * The first line of a section is the rest of its "Starting ... Test"
+	 * marker line and is not part of the statistics.
+	 */
+	private static void parseStatRows(String content, List<StatRow> rows) {
+		String[] lines = content.split(System.lineSeparator());
+		for (int i = lines.length > 1 ? 1 : 0; i < lines.length; i++) {
+			String line = lines[i];
+			if (line.contains("--"))
+				continue;
+			if (line.indexOf(' ') > -1)
+				rows.add(new StatRow(line.substring(0, line.indexOf(' ')), line.substring(line.lastIndexOf(' ') + 1)));
+			else
+				rows.add(new StatRow(line, null));
+		}
+	}
+
+	private static void parseSweepPoints(String content, List<SweepPoint> points) {
+		Map<Integer, SweepPoint> bySize = new LinkedHashMap<>();
+		Matcher matcher = RTT_PATTERN.matcher(content);
+		while (matcher.find())
+			getSweepPoint(bySize, matcher.group("size")).setRtt(parseNumber(matcher.group("val")));
+		matcher = BANDWIDTH_PATTERN.matcher(content);
+		while (matcher.find())
+			getSweepPoint(bySize, matcher.group("size")).setBandwidth(parseNumber(matcher.group("val")));
+		points.addAll(bySize.values());
+	}
+
+	private static SweepPoint getSweepPoint(Map<Integer, SweepPoint> bySize, String size) {
+		Integer messageSize = Integer.valueOf(size);
+		SweepPoint point = bySize.get(messageSize);
+		if (point == null) {
+			point = new SweepPoint(messageSize);
+			bySize.put(messageSize, point);
+		}
+		return point;
+	}
+
+	/*
+	 * Statistics rows as they can be read back from the text of a generated
+	 * report, in document order.
+	 */
+	public static List<Statistics> parseStatistics(CharSequence text) {
+		List<Statistics> statistics = new ArrayList<>();
+		Matcher matcher = STATISTICS_PATTERN.matcher(text);
+		while (matcher.find())
+			statistics.add(new Statistics(Double.parseDouble(matcher.group("total")),
+					Double.parseDouble(matcher.group("min")), Double.parseDouble(matcher.group("max")),
+					Double.parseDouble(matcher.group("avg")), Double.parseDouble(matcher.group("co")),
+					Double.parseDouble(matcher.group("std"))));
+		return statistics;
+	}
+
+	public static double parseNumber(String text) {
+		if (text == null)
+			return Double.NaN;
+		Matcher matcher = NUMBER_PATTERN.matcher(text);
+		return matcher.find() ? Double.parseDouble(matcher.group()) : Double.NaN;
+	}
+}
@@ -0,0 +1,78 @@
+package reporting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Filter over a ResultStore. Filters that are not set match every row, e.g.
+ * store.query().device("Omega").metric("Total").list()
+ */
+public class ResultQuery {
+	private ResultStore store;
+	private String device, testType, metric;
+	private long from = Long.MIN_VALUE, to = Long.MAX_VALUE;
+
+	ResultQuery(ResultStore store) {
+		this.store = store;
+	}
+
+	public ResultQuery device(String device) {
+		this.device = device;
+		return this;
+	}
+
+	public ResultQuery testType(String testType) {
+		this.testType = testType;
+		return this;
+	}
+
+	public ResultQuery metric(String metric) {
+		this.metric = metric;
+		return this;
+	}
+
+	public ResultQuery between(long from, long to) {
+		this.from = from;
+		this.to = to;
+		return this;
+	}
+
+	public List<ResultRecord> list() throws IOException {
+		List<ResultRecord> matches = new ArrayList<>();
+		store.scan(this, matches, new double[2]);
+		return matches;
+	}
+
+	public long count() throws IOException {
+		double[] aggregate = new double[2];
+		store.scan(this, null, aggregate);
+		return (long) aggregate[0];
+	}
+
+	public double average() throws IOException {
+		double[] aggregate = new double[2];
+		store.scan(this, null, aggregate);
+		return aggregate[0] == 0 ? Double.NaN : aggregate[1] / aggregate[0];
+	}
+
+	String getDevice() {
+		return device;
+	}
+
+	String getTestType() {
+		return testType;
+	}
+
+	String getMetric() {
+		return metric;
+	}
+
+	long getFrom() {
+		return from;
+	}
+
+	long getTo() {
+		return to;
+	}
+}
@@ -0,0 +1,44 @@
+package reporting;
+
+import java.util.Date;
+
+public class ResultRecord {
+	private String device;
+	private String testType;
+	private String metric;
+	private double value;
+	private long timestamp;
+
+	public ResultRecord(String device, String testType, String metric, double value, long timestamp) {
+		this.device = device;
+		this.testType = testType;
+		this.metric = metric;
+		this.value = value;
+		this.timestamp = timestamp;
+	}
+
+	public String getDevice() {
+		return device;
+	}
+
+	public String getTestType() {
+		return testType;
+	}
+
+	public String getMetric() {
+		return metric;
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return device + " " + testType + " " + metric + "=" + value + " (" + new Date(timestamp) + ")";
+	}
+}
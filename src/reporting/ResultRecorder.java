@@ -0,0 +1,83 @@
+package reporting;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Collects the numbers of every parsed section and appends them to the
+ * result store once reporting is done. All rows of a run share the time
+ * its raw file was last written. A run is keyed by the device and the path,
+ * size and modification time of its raw file, so reporting the same raw
+ * file again does not record the run a second time.
+ */
+public class ResultRecorder implements SectionListener {
+	private static final int BATCH_SIZE = 10000;
+
+	private ResultStore store;
+	private String device;
+	private long timestamp;
+	private List<ResultRecord> pending;
+	private String source;
+	private boolean recorded;
+
+	public ResultRecorder(ResultStore store, String device, File rawFile) {
+		this.store = store;
+		this.device = device != null ? device : "Device-Name-Not-Found";
+		long modified = rawFile.lastModified();
+		timestamp = modified > 0 ? modified : System.currentTimeMillis();
+		pending = new ArrayList<>();
+		source = (this.device + "\t" + rawFile.getAbsolutePath()).replace('\n', ' ') + "\t" + rawFile.length() + "\t"
+				+ modified;
+		try {
+			recorded = store.hasRun(source);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void onSection(TestSection section) {
+		if (recorded)
+			return;
+		String testType = section.getTitle().trim();
+		if (section.isNetworking()) {
+			for (SweepPoint point : section.getSweepPoints()) {
+				add(testType, "rtt " + point.getMessageSize(), point.getRtt());
+				add(testType, "bandwidth " + point.getMessageSize(), point.getBandwidth());
+			}
+		} else {
+			for (StatRow row : section.getStatRows())
+				if (row.hasValue())
+					add(testType, row.getLabel(), row.getNumber());
+		}
+		if (pending.size() >= BATCH_SIZE)
+			flush();
+	}
+
+	private void add(String testType, String metric, double value) {
+		if (!Double.isNaN(value))
+			pending.add(new ResultRecord(device, testType, metric, value, timestamp));
+	}
+
+	private void flush() {
+		try {
+			store.append(pending);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		pending = new ArrayList<>();
+	}
+
+	public void finishRun() {
+		if (recorded)
+			return;
+		flush();
+		try {
+			store.addRun(source);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		recorded = true;
+	}
+}
@@ -0,0 +1,257 @@
+package reporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only columnar store of result metrics. Every column lives in its own
+ * file of fixed width values; device, test and metric names are stored once in
+ * a dictionary and referenced by id. The number of committed rows is written
+ * last, so readers never see a half written append and an interrupted append
+ * is simply overwritten by the next one. Readers memory map the columns.
+ * The sources of all recorded runs are listed in runs.txt, so the same run
+ * is never stored twice.
+ */
+public class ResultStore {
+	private static final String DEVICE_COLUMN = "device.col", TEST_COLUMN = "test.col", METRIC_COLUMN = "metric.col",
+			VALUE_COLUMN = "value.col", TIMESTAMP_COLUMN = "timestamp.col";
+	private static final String DICTIONARY_FILE = "dictionary.txt", ROWS_FILE = "rows.meta", LOCK_FILE = "store.lock",
+			RUNS_FILE = "runs.txt";
+	private static ResultStore instance;
+
+	private File directory;
+	private List<String> dictionary = new ArrayList<>();
+	private Map<String, Integer> dictionaryIds = new HashMap<>();
+	private long dictionaryLength;
+
+	private long mappedRows = -1;
+	private IntBuffer devices, tests, metrics;
+	private DoubleBuffer values;
+	private LongBuffer timestamps;
+
+	public ResultStore(File directory) {
+		this.directory = directory;
+	}
+
+	/*
+	 * The store in the user's home directory, or in -Dopcua.results.dir.
+	 */
+	public static synchronized ResultStore getInstance() {
+		if (instance == null)
+			instance = new ResultStore(new File(System.getProperty("opcua.results.dir",
+					System.getProperty("user.home") + File.separator + "opc-ua-deployment-tool-results")));
+		return instance;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("opcua.results.store", "true"));
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public synchronized void append(List<ResultRecord> records) throws IOException {
+		if (records.isEmpty())
+			return;
+		directory.mkdirs();
+		try (FileChannel lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			lockChannel.lock();
+			long rows = readRowCount();
+			loadDictionary();
+			int size = records.size();
+			ByteBuffer deviceBuffer = ByteBuffer.allocate(size * 4), testBuffer = ByteBuffer.allocate(size * 4),
+					metricBuffer = ByteBuffer.allocate(size * 4), valueBuffer = ByteBuffer.allocate(size * 8),
+					timestampBuffer = ByteBuffer.allocate(size * 8);
+			StringBuilder newEntries = new StringBuilder();
+			for (ResultRecord record : records) {
+				deviceBuffer.putInt(getOrAddId(record.getDevice(), newEntries));
+				testBuffer.putInt(getOrAddId(record.getTestType(), newEntries));
+				metricBuffer.putInt(getOrAddId(record.getMetric(), newEntries));
+				valueBuffer.putDouble(record.getValue());
+				timestampBuffer.putLong(record.getTimestamp());
+			}
+			if (newEntries.length() > 0)
+				appendDictionary(newEntries.toString());
+			writeColumn(DEVICE_COLUMN, rows, 4, deviceBuffer);
+			writeColumn(TEST_COLUMN, rows, 4, testBuffer);
+			writeColumn(METRIC_COLUMN, rows, 4, metricBuffer);
+			writeColumn(VALUE_COLUMN, rows, 8, valueBuffer);
+			writeColumn(TIMESTAMP_COLUMN, rows, 8, timestampBuffer);
+			writeRowCount(rows + size);
+		} catch (IOException e) {
+			dictionary.clear();
+			dictionaryIds.clear();
+			dictionaryLength = 0;
+			mappedRows = -1;
+			throw e;
+		}
+	}
+
+	public synchronized boolean hasRun(String source) throws IOException {
+		File file = new File(directory, RUNS_FILE);
+		return file.exists() && Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).contains(source);
+	}
+
+	public synchronized void addRun(String source) throws IOException {
+		directory.mkdirs();
+		try (FileChannel lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			lockChannel.lock();
+			Files.write(new File(directory, RUNS_FILE).toPath(), (source + "\n").getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+	}
+
+	public ResultQuery query() {
+		return new ResultQuery(this);
+	}
+
+	public synchronized long getRowCount() throws IOException {
+		refresh();
+		return mappedRows;
+	}
+
+	/*
+	 * Visits the committed rows matching the query. Names that are not in
+	 * the dictionary cannot match any row, so such queries return at once.
+	 */
+	synchronized void scan(ResultQuery query, List<ResultRecord> matches, double[] aggregate) throws IOException {
+		refresh();
+		int device = resolve(query.getDevice()), test = resolve(query.getTestType()),
+				metric = resolve(query.getMetric());
+		if (device == -2 || test == -2 || metric == -2)
+			return;
+		for (int row = 0; row < mappedRows; row++) {
+			if ((device >= 0 && devices.get(row) != device) || (test >= 0 && tests.get(row) != test)
+					|| (metric >= 0 && metrics.get(row) != metric))
+				continue;
+			long timestamp = timestamps.get(row);
+			if (timestamp < query.getFrom() || timestamp > query.getTo())
+				continue;
+			double value = values.get(row);
+			if (matches != null)
+				matches.add(new ResultRecord(dictionary.get(devices.get(row)), dictionary.get(tests.get(row)),
+						dictionary.get(metrics.get(row)), value, timestamp));
+			aggregate[0]++;
+			aggregate[1] += value;
+		}
+	}
+
+	private int resolve(String name) {
+		if (name == null)
+			return -1;
+		Integer id = dictionaryIds.get(name);
+		return id == null ? -2 : id;
+	}
+
+	private void refresh() throws IOException {
+		long rows = readRowCount();
+		if (rows == mappedRows)
+			return;
+		loadDictionary();
+		devices = map(DEVICE_COLUMN, rows * 4).asIntBuffer();
+		tests = map(TEST_COLUMN, rows * 4).asIntBuffer();
+		metrics = map(METRIC_COLUMN, rows * 4).asIntBuffer();
+		values = map(VALUE_COLUMN, rows * 8).asDoubleBuffer();
+		timestamps = map(TIMESTAMP_COLUMN, rows * 8).asLongBuffer();
+		mappedRows = rows;
+	}
+
+	private ByteBuffer map(String column, long length) throws IOException {
+		if (length == 0)
+			return ByteBuffer.allocate(0);
+		try (FileChannel channel = FileChannel.open(new File(directory, column).toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+	}
+
+	private int getOrAddId(String name, StringBuilder newEntries) {
+		String entry = name.replace('\n', ' ').replace('\r', ' ');
+		Integer id = dictionaryIds.get(entry);
+		if (id == null) {
+			id = dictionary.size();
+			dictionary.add(entry);
+			dictionaryIds.put(entry, id);
+			newEntries.append(entry).append('\n');
+		}
+		return id;
+	}
+
+	/*
+	 * Reads the entries appended since the last call. A line that is still
+	 * being written has no line end yet and is left for the next call.
+	 */
+	private void loadDictionary() throws IOException {
+		File file = new File(directory, DICTIONARY_FILE);
+		if (!file.exists() || file.length() == dictionaryLength)
+			return;
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			byte[] bytes = new byte[(int) (randomAccessFile.length() - dictionaryLength)];
+			randomAccessFile.seek(dictionaryLength);
+			randomAccessFile.readFully(bytes);
+			int lineStart = 0;
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] != '\n')
+					continue;
+				String entry = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+				dictionaryIds.put(entry, dictionary.size());
+				dictionary.add(entry);
+				lineStart = i + 1;
+			}
+			dictionaryLength += lineStart;
+		}
+	}
+
+	private void appendDictionary(String entries) throws IOException {
+		byte[] bytes = entries.getBytes(StandardCharsets.UTF_8);
+		try (FileChannel channel = FileChannel.open(new File(directory, DICTIONARY_FILE).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			channel.truncate(dictionaryLength);
+			channel.write(ByteBuffer.wrap(bytes), dictionaryLength);
+			channel.force(false);
+		}
+		dictionaryLength += bytes.length;
+	}
+
+	private void writeColumn(String column, long rows, int width, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(new File(directory, column).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE)) {
+			channel.truncate(rows * width);
+			long position = rows * width;
+			while (buffer.hasRemaining())
+				position += channel.write(buffer, position);
+			channel.force(false);
+		}
+	}
+
+	private long readRowCount() throws IOException {
+		File file = new File(directory, ROWS_FILE);
+		if (!file.exists())
+			return 0;
+		return ByteBuffer.wrap(Files.readAllBytes(file.toPath())).getLong();
+	}
+
+	private void writeRowCount(long rows) throws IOException {
+		File temporary = new File(directory, ROWS_FILE + ".tmp");
+		Files.write(temporary.toPath(), ByteBuffer.allocate(8).putLong(rows).array());
+		Files.move(temporary.toPath(), new File(directory, ROWS_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,7 @@
+package reporting;
+
+public interface SectionListener {
+
+	void onSection(TestSection section);
+
+}
@@ -0,0 +1,66 @@
+package reporting;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Line by line state machine over the raw output. A section is opened by a
+ * "Starting ... Test" marker and closed by the matching "Ending" marker;
+ * every closed section is parsed and handed to the listener right away, so
+ * only the section that is currently open is kept in memory. A section that
+ * is still open when the next one starts never ended (e.g. the client
+ * crashed) and is reported as "no match".
+ */
+public class SectionScanner {
+	static final Pattern TITLE_PATTERN = Pattern.compile("\\bStarting.*?Test\\b");
+	static final String START_MARKER = "Starting", END_MARKER = "Ending";
+
+	private SectionListener listener;
+	private String title;
+	private StringBuilder content = new StringBuilder();
+
+	public SectionScanner(SectionListener listener) {
+		this.listener = listener;
+	}
+
+	public void accept(String line) {
+		while (line != null) {
+			if (title == null) {
+				Matcher matcher = TITLE_PATTERN.matcher(line);
+				if (!matcher.find())
+					return;
+				String marker = matcher.group();
+				title = marker.substring(marker.indexOf("g") + 1, marker.indexOf("T"));
+				content.setLength(0);
+				line = line.substring(matcher.start() + START_MARKER.length() + title.length());
+			}
+			int end = line.indexOf(END_MARKER + title);
+			Matcher next = TITLE_PATTERN.matcher(line);
+			if (next.find() && (end < 0 || next.start() < end)) {
+				listener.onSection(ResultParser.parse(title, "no match"));
+				title = null;
+				line = line.substring(next.start());
+				continue;
+			}
+			if (end < 0) {
+				content.append(line);
+				content.append(System.lineSeparator());
+				return;
+			}
+			content.append(line, 0, end);
+			listener.onSection(ResultParser.parse(title, content.toString()));
+			line = line.substring(end + END_MARKER.length() + title.length());
+			title = null;
+		}
+	}
+
+	/*
+	 * A section that never ended is reported as "no match".
+	 */
+	public void finish() {
+		if (title != null)
+			listener.onSection(ResultParser.parse(title, "no match"));
+		title = null;
+		content = new StringBuilder();
+	}
+}
@@ -0,0 +1,32 @@
+package reporting;
+
+/*
+ * One line of a test section as it is shown in the report table: the first
+ * word is the label, the last word the value. Lines with a single word have
+ * no value.
+ */
+public class StatRow {
+	private String label;
+	private String value;
+
+	public StatRow(String label, String value) {
+		this.label = label;
+		this.value = value;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public boolean hasValue() {
+		return value != null;
+	}
+
+	public double getNumber() {
+		return ResultParser.parseNumber(value);
+	}
+}
@@ -0,0 +1,43 @@
+package reporting;
+
+/*
+ * Timing statistics of a test in the order they appear in a report:
+ * total, min, max, average, coefficient of variation, standard deviation.
+ */
+public class Statistics {
+	public static final String[] NAMES = { "Total", "Min", "Max", "Avg", "Co", "Std" };
+
+	private double[] values;
+
+	public Statistics(double total, double min, double max, double avg, double co, double std) {
+		values = new double[] { total, min, max, avg, co, std };
+	}
+
+	public double getTotal() {
+		return values[0];
+	}
+
+	public double getMin() {
+		return values[1];
+	}
+
+	public double getMax() {
+		return values[2];
+	}
+
+	public double getAvg() {
+		return values[3];
+	}
+
+	public double getCo() {
+		return values[4];
+	}
+
+	public double getStd() {
+		return values[5];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+}
@@ -0,0 +1,35 @@
+package reporting;
+
+/*
+ * Round trip time and bandwidth measured for one message size of a
+ * networking test. Values that were not reported are NaN.
+ */
+public class SweepPoint {
+	private int messageSize;
+	private double rtt = Double.NaN;
+	private double bandwidth = Double.NaN;
+
+	public SweepPoint(int messageSize) {
+		this.messageSize = messageSize;
+	}
+
+	public int getMessageSize() {
+		return messageSize;
+	}
+
+	public double getRtt() {
+		return rtt;
+	}
+
+	public void setRtt(double rtt) {
+		this.rtt = rtt;
+	}
+
+	public double getBandwidth() {
+		return bandwidth;
+	}
+
+	public void setBandwidth(double bandwidth) {
+		this.bandwidth = bandwidth;
+	}
+}
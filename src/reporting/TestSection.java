@@ -0,0 +1,50 @@
+package reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestSection {
+	private String title;
+	private List<StatRow> statRows;
+	private List<SweepPoint> sweepPoints;
+
+	public TestSection(String title) {
+		this.title = title;
+		statRows = new ArrayList<>();
+		sweepPoints = new ArrayList<>();
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public boolean isNetworking() {
+		return title.contains("Networking");
+	}
+
+	public List<StatRow> getStatRows() {
+		return statRows;
+	}
+
+	public List<SweepPoint> getSweepPoints() {
+		return sweepPoints;
+	}
+
+	/*
+	 * The first six numeric values of the section, or null when the section
+	 * has fewer.
+	 */
+	public Statistics getStatistics() {
+		double[] values = new double[Statistics.NAMES.length];
+		int found = 0;
+		for (StatRow row : statRows) {
+			double number = row.getNumber();
+			if (Double.isNaN(number))
+				continue;
+			values[found++] = number;
+			if (found == values.length)
+				return new Statistics(values[0], values[1], values[2], values[3], values[4], values[5]);
+		}
+		return null;
+	}
+}
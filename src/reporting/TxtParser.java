@@ -2,15 +2,15 @@ package reporting;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
 
+/*
+ * Reads the raw file once, line by line, and hands every section to the
+ * report writer as soon as it is complete.
+ */
 public class TxtParser {
 	private String path,deviceName,reportType;
 	
-	private ArrayList<String> titles;
-	private ArrayList<String> contents;
 	private PdfParser pdfParser;
 	private ExcelParser excelParser;
 	private File txtFile;
@@ -22,76 +22,77 @@ public class TxtParser {
 		this.reportType = reportType;
 	}
 	
+	/*
+	 * Reads another raw file than the one in the output path; reports are
+	 * still written to the output path.
+	 */
+	public void setRawFile(File txtFile) {
+		this.txtFile = txtFile;
+	}
+	
 	public void startReadingFile() {
-		try {
+		if(txtFile == null)
 			txtFile= new File(path+File.separator+rawFileName);
-			BufferedReader	bufferedReader = new BufferedReader(new FileReader(txtFile));
-			StringBuilder stringBuilder = new StringBuilder();
-			
-			String line = bufferedReader.readLine();
-
-		    while (line != null) {
-		    	stringBuilder.append(line);
-		    	stringBuilder.append(System.lineSeparator());
-		        line = bufferedReader.readLine();
-		    }
-		    String everything = stringBuilder.toString();
-		    bufferedReader.close();
-		    findTitles(everything);
-		    findContent(everything);
-		    startParsing();
-		   
-		}catch(Exception e) {
-			e.printStackTrace();
-		}
-		
-		
-	}
-	public void findTitles(String everything) {
-		titles = new ArrayList<>();
-		Pattern titlePattern = Pattern.compile("\\bStarting.*?Test\\b");
-		Matcher matcher = titlePattern.matcher(everything);
-		while(matcher.find()) {
-			
-			titles.add(matcher.group().substring(matcher.group().indexOf("g")+1, matcher.group().indexOf("T")));
-		//	System.out.println(matcher.group());
-			//(?s)Starting CPU Single Value from Node (.*?)Ending CPU Single Value from Node 
-		}	
-	}
-	public void findContent(String everything) {
-		contents = new ArrayList<>();
-		for(int i=0;i<titles.size();i++) {
-			String title = titles.get(i);
-			String content = "no match";
-		    Pattern pattern =Pattern.compile("(?s)Starting"+title+"(.*?)"+"Ending"+title);
-			Matcher matcher =pattern.matcher(everything);
-			while(matcher.find()) 
-				content = matcher.group(1);
-			contents.add(content);			
-		}
-		}
-	public void startParsing() {
 		switch(reportType) {
 		case ".pdf" :
-			 pdfParser = new PdfParser();
-			    pdfParser.setPath(path);
-			    pdfParser.setTitles(titles);
-			    pdfParser.setContents(contents);
-			    pdfParser.setDeviceName(deviceName);
-			    pdfParser.startReporting();
+			pdfParser = new PdfParser();
+			pdfParser.setPath(path);
+			pdfParser.setDeviceName(deviceName);
+			pdfParser.startDocument();
+			readSections(pdfParser);
+			pdfParser.finishDocument();
 			break;
 		case ".csv" :
+		case ".xml" :
+		case ".xlsx-single" :
+		case ".xlsx-multiple" :
 			excelParser = new ExcelParser();
 			excelParser.setTxtFile(txtFile);
 			excelParser.setPath(path);
-			excelParser.startExcelParsing();
+			excelParser.setFormat(reportType.substring(1));
+			excelParser.startDocument();
+			readSections(excelParser);
+			excelParser.finishDocument();
 			break;
-			
 		}
 	}
 	
+	private void readSections(SectionListener listener) {
+		ResultRecorder recorder = ResultStore.isEnabled() ? new ResultRecorder(ResultStore.getInstance(), deviceName, txtFile) : null;
+		SectionListener target = listener;
+		if(recorder != null)
+			target = new SectionListener() {
+				public void onSection(TestSection section) {
+					listener.onSection(section);
+					recorder.onSection(section);
+				}
+			};
+		if(MappedLogScanner.isPreferredFor(txtFile)) {
+			try {
+				new MappedLogScanner(txtFile).scan(target);
+			}catch(Exception e) {
+				e.printStackTrace();
+			}
+		}
+		else {
+			try (BufferedReader bufferedReader = new BufferedReader(new FileReader(txtFile))) {
+				readSections(bufferedReader, target);
+			}catch(Exception e) {
+				e.printStackTrace();
+			}
+		}
+		if(recorder != null)
+			recorder.finishRun();
+	}
 	
-	
+	public static void readSections(BufferedReader bufferedReader, SectionListener listener) throws IOException {
+		SectionScanner scanner = new SectionScanner(listener);
+		String line = bufferedReader.readLine();
+		while (line != null) {
+			scanner.accept(line);
+			line = bufferedReader.readLine();
+		}
+		scanner.finish();
 	}
-
 	
+	}
@@ -0,0 +1,237 @@
+package reporting;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/*
+ * Writes a minimal SpreadsheetML package. Sheet XML is written row by row
+ * straight into the zip entry with inline strings, so no shared string table
+ * or workbook model has to be kept in memory. Either all tests go into one
+ * sheet, or every test gets a sheet of its own.
+ */
+public class XlsxExporter extends ResultExporter {
+	private static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	private static final String RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	private static final String[] STATISTIC_COLUMNS = { "Statistic", "Value" };
+	private static final String[] SWEEP_COLUMNS = { "Message Size (bytes)", "Rtt", "Bandwidth (kB/s)" };
+
+	private boolean sheetPerTest;
+	private ZipOutputStream zipStream;
+	private OutputStream entryStream;
+	private XMLStreamWriter sheetWriter;
+	private List<String> sheetNames;
+	private Set<String> usedSheetNames;
+	private int rowIndex;
+
+	public XlsxExporter(boolean sheetPerTest) {
+		this.sheetPerTest = sheetPerTest;
+	}
+
+	@Override
+	public void startDocument(File file) throws IOException {
+		zipStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		entryStream = new FilterOutputStream(zipStream) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+		sheetNames = new ArrayList<>();
+		usedSheetNames = new HashSet<>();
+		if (!sheetPerTest) {
+			try {
+				startSheet("Results");
+				writeRow(COLUMNS);
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	@Override
+	protected void writeSection(TestSection section) throws Exception {
+		if (sheetPerTest) {
+			startSheet(section.getTitle());
+			writeRow(section.isNetworking() ? SWEEP_COLUMNS : STATISTIC_COLUMNS);
+		}
+		if (section.isNetworking()) {
+			for (SweepPoint point : section.getSweepPoints()) {
+				Object[] row = toRow(section, point);
+				writeRow(sheetPerTest ? new Object[] { row[3], row[4], row[5] } : row);
+			}
+		} else {
+			for (StatRow statRow : section.getStatRows()) {
+				Object[] row = toRow(section, statRow);
+				writeRow(sheetPerTest ? new Object[] { row[1], row[2] } : row);
+			}
+		}
+		if (sheetPerTest)
+			finishSheet();
+	}
+
+	@Override
+	public void finishDocument() throws IOException {
+		if (zipStream == null)
+			return;
+		try {
+			if (sheetWriter != null)
+				finishSheet();
+			if (sheetNames.isEmpty()) {
+				startSheet("Results");
+				finishSheet();
+			}
+			writeWorkbook();
+			writeEntry("[Content_Types].xml", contentTypes());
+			writeEntry("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+					+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+					+ "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIP_NAMESPACE
+					+ "/officeDocument\" Target=\"xl/workbook.xml\"/></Relationships>");
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			zipStream.close();
+		}
+	}
+
+	private void startSheet(String title) throws IOException, XMLStreamException {
+		sheetNames.add(createSheetName(title));
+		zipStream.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+		sheetWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(entryStream, "UTF-8");
+		sheetWriter.writeStartDocument("UTF-8", "1.0");
+		sheetWriter.writeStartElement("worksheet");
+		sheetWriter.writeDefaultNamespace(MAIN_NAMESPACE);
+		sheetWriter.writeStartElement("sheetData");
+		rowIndex = 0;
+	}
+
+	private void finishSheet() throws IOException, XMLStreamException {
+		sheetWriter.writeEndElement();
+		sheetWriter.writeEndElement();
+		sheetWriter.writeEndDocument();
+		sheetWriter.close();
+		sheetWriter = null;
+		entryStream.flush();
+		zipStream.closeEntry();
+	}
+
+	private void writeRow(Object[] cells) throws XMLStreamException {
+		rowIndex++;
+		sheetWriter.writeStartElement("row");
+		sheetWriter.writeAttribute("r", String.valueOf(rowIndex));
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] == null)
+				continue;
+			sheetWriter.writeStartElement("c");
+			sheetWriter.writeAttribute("r", columnName(i) + rowIndex);
+			if (cells[i] instanceof Number) {
+				sheetWriter.writeStartElement("v");
+				sheetWriter.writeCharacters(String.valueOf(cells[i]));
+				sheetWriter.writeEndElement();
+			} else {
+				sheetWriter.writeAttribute("t", "inlineStr");
+				sheetWriter.writeStartElement("is");
+				sheetWriter.writeStartElement("t");
+				sheetWriter.writeCharacters(String.valueOf(cells[i]));
+				sheetWriter.writeEndElement();
+				sheetWriter.writeEndElement();
+			}
+			sheetWriter.writeEndElement();
+		}
+		sheetWriter.writeEndElement();
+	}
+
+	private static String columnName(int index) {
+		StringBuilder name = new StringBuilder();
+		for (int i = index + 1; i > 0; i = (i - 1) / 26)
+			name.insert(0, (char) ('A' + (i - 1) % 26));
+		return name.toString();
+	}
+
+	/*
+	 * Sheet names are limited to 31 characters, must not contain []:*?/\ and
+	 * have to be unique within the workbook.
+	 */
+	private String createSheetName(String title) {
+		String name = title.trim().replaceAll("[\\[\\]:*?/\\\\]", " ");
+		if (name.isEmpty())
+			name = "Test";
+		if (name.length() > 31)
+			name = name.substring(0, 31);
+		String unique = name;
+		for (int i = 2; usedSheetNames.contains(unique.toLowerCase()); i++) {
+			String suffix = " (" + i + ")";
+			unique = name.substring(0, Math.min(name.length(), 31 - suffix.length())) + suffix;
+		}
+		usedSheetNames.add(unique.toLowerCase());
+		return unique;
+	}
+
+	private void writeWorkbook() throws IOException, XMLStreamException {
+		zipStream.putNextEntry(new ZipEntry("xl/workbook.xml"));
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(entryStream, "UTF-8");
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeStartElement("workbook");
+		writer.writeDefaultNamespace(MAIN_NAMESPACE);
+		writer.writeNamespace("r", RELATIONSHIP_NAMESPACE);
+		writer.writeStartElement("sheets");
+		for (int i = 1; i <= sheetNames.size(); i++) {
+			writer.writeEmptyElement("sheet");
+			writer.writeAttribute("name", sheetNames.get(i - 1));
+			writer.writeAttribute("sheetId", String.valueOf(i));
+			writer.writeAttribute("r", RELATIONSHIP_NAMESPACE, "id", "rId" + i);
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.close();
+		entryStream.flush();
+		zipStream.closeEntry();
+
+		StringBuilder relationships = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+		for (int i = 1; i <= sheetNames.size(); i++)
+			relationships.append("<Relationship Id=\"rId" + i + "\" Type=\"" + RELATIONSHIP_NAMESPACE
+					+ "/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>");
+		relationships.append("</Relationships>");
+		writeEntry("xl/_rels/workbook.xml.rels", relationships.toString());
+	}
+
+	private String contentTypes() {
+		StringBuilder types = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+				+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+				+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+				+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+		for (int i = 1; i <= sheetNames.size(); i++)
+			types.append("<Override PartName=\"/xl/worksheets/sheet" + i
+					+ ".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+		types.append("</Types>");
+		return types.toString();
+	}
+
+	private void writeEntry(String name, String content) throws IOException {
+		zipStream.putNextEntry(new ZipEntry(name));
+		zipStream.write(content.getBytes(StandardCharsets.UTF_8));
+		zipStream.closeEntry();
+	}
+}
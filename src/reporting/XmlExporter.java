@@ -0,0 +1,68 @@
+package reporting;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+public class XmlExporter extends ResultExporter {
+	private OutputStream outStream;
+	private XMLStreamWriter writer;
+
+	@Override
+	public void startDocument(File file) throws IOException {
+		outStream = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		try {
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, "UTF-8");
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeStartElement("results");
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	protected void writeSection(TestSection section) throws XMLStreamException {
+		writer.writeStartElement("test");
+		writer.writeAttribute("title", section.getTitle().trim());
+		if (section.isNetworking()) {
+			for (SweepPoint point : section.getSweepPoints()) {
+				writer.writeEmptyElement("point");
+				writer.writeAttribute("size", String.valueOf(point.getMessageSize()));
+				if (!Double.isNaN(point.getRtt()))
+					writer.writeAttribute("rtt", String.valueOf(point.getRtt()));
+				if (!Double.isNaN(point.getBandwidth()))
+					writer.writeAttribute("bandwidth", String.valueOf(point.getBandwidth()));
+			}
+		} else {
+			for (StatRow row : section.getStatRows()) {
+				writer.writeEmptyElement("statistic");
+				writer.writeAttribute("name", row.getLabel());
+				if (row.hasValue())
+					writer.writeAttribute("value", row.getValue());
+			}
+		}
+		writer.writeEndElement();
+	}
+
+	@Override
+	public void finishDocument() throws IOException {
+		try {
+			if (writer != null) {
+				writer.writeEndElement();
+				writer.writeEndDocument();
+				writer.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (outStream != null)
+				outStream.close();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package userInterface;
+
+import java.io.Console;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import controller.MainController;
+import deployment.DeviceTarget;
+import merging.Merger;
+import reporting.ReportingMaker;
+
+/**
+ * Headless entry point for deploying, reporting and merging, e.g. on a build
+ * server:
+ *
+ * <pre>
+ * deploy -user NAME -ansible DIR -docker DIR -output DIR [-test TYPE]... HOST...
+ * report [-type .pdf|.csv|.xml|.xlsx-single|.xlsx-multiple] [-device NAME] [-output DIR] FILE|DIR...
+ * merge [-output DIR] REPORT.pdf REPORT.pdf...
+ * </pre>
+ *
+ * deploy runs a fleet deployment to all given hosts, which share the
+ * password read from the console or from OPCUA_PASSWORD; every host gets a
+ * sub directory of the output directory. Several -test options run all
+ * those suites as a matrix against a single host. Directories are searched
+ * recursively for raw files (opc_ua_automated_test_tool_raw.txt), so the
+ * output of a fleet deployment can be reported in one go. Without -device
+ * the device name is taken from the directory of a raw file, or from the
+ * file name for other files. Swing is never loaded; charts are drawn with
+ * AWT in headless mode.
+ */
+public class CommandLine {
+	private static final String RAW_FILE_NAME = "opc_ua_automated_test_tool_raw.txt";
+	private static final List<String> REPORT_TYPES = Arrays.asList(".pdf", ".csv", ".xml", ".xlsx-single",
+			".xlsx-multiple");
+
+	private String reportType = ".pdf";
+	private String deviceName;
+	private String outputPath;
+	private String username, ansiblePath, dockerPath;
+	private List<String> testingTypes = new ArrayList<>();
+	private List<String> arguments = new ArrayList<>();
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		if (args.length == 0) {
+			printUsage();
+			System.exit(2);
+		}
+		CommandLine commandLine = new CommandLine();
+		if (!commandLine.parseOptions(Arrays.asList(args).subList(1, args.length))) {
+			printUsage();
+			System.exit(2);
+		}
+		int failed;
+		switch (args[0]) {
+		case "report":
+			failed = commandLine.report();
+			break;
+		case "merge":
+			failed = commandLine.merge();
+			break;
+		case "deploy":
+			failed = commandLine.deploy();
+			break;
+		default:
+			printUsage();
+			System.exit(2);
+			return;
+		}
+		System.exit(failed == 0 ? 0 : 1);
+	}
+
+	private static void printUsage() {
+		System.err.println("usage: deploy -user NAME -ansible DIR -docker DIR -output DIR [-test TYPE]... HOST...");
+		System.err.println("       report [-type .pdf|.csv|.xml|.xlsx-single|.xlsx-multiple] [-device NAME]"
+				+ " [-output DIR] FILE|DIR...");
+		System.err.println("       merge [-output DIR] REPORT.pdf REPORT.pdf...");
+	}
+
+	private boolean parseOptions(List<String> options) {
+		for (int i = 0; i < options.size(); i++) {
+			String option = options.get(i);
+			if (option.startsWith("-") && i + 1 >= options.size())
+				return false;
+			switch (option) {
+			case "-type":
+				reportType = options.get(++i);
+				if (!reportType.startsWith("."))
+					reportType = "." + reportType;
+				if (!REPORT_TYPES.contains(reportType))
+					return false;
+				break;
+			case "-device":
+				deviceName = options.get(++i);
+				break;
+			case "-output":
+				outputPath = options.get(++i);
+				break;
+			case "-user":
+				username = options.get(++i);
+				break;
+			case "-ansible":
+				ansiblePath = options.get(++i);
+				break;
+			case "-docker":
+				dockerPath = options.get(++i);
+				break;
+			case "-test":
+				testingTypes.add(options.get(++i));
+				break;
+			default:
+				if (option.startsWith("-"))
+					return false;
+				arguments.add(option);
+			}
+		}
+		return !arguments.isEmpty();
+	}
+
+	/*
+	 * All raw files are reported in this JVM one after another; every report
+	 * already renders its sections on all cores.
+	 */
+	private int report() {
+		List<File> rawFiles = new ArrayList<>();
+		for (String argument : arguments) {
+			File file = new File(argument);
+			if (file.isDirectory())
+				findRawFiles(file, rawFiles);
+			else if (file.isFile())
+				rawFiles.add(file);
+			else
+				System.err.println(argument + ": no such file or directory");
+		}
+		int failed = arguments.size() - countExisting();
+		for (File rawFile : rawFiles) {
+			File output = outputPath != null ? new File(outputPath) : rawFile.getAbsoluteFile().getParentFile();
+			output.mkdirs();
+			String device = deviceName != null ? deviceName : getDeviceName(rawFile);
+			long start = System.currentTimeMillis();
+			try {
+				ReportingMaker reportingMaker = new ReportingMaker(output.getAbsolutePath(), reportType, device);
+				reportingMaker.setRawFile(rawFile);
+				reportingMaker.startReporting();
+				System.out.println(rawFile.getPath() + " -> " + output.getPath() + " (" + device + ", "
+						+ (System.currentTimeMillis() - start) + " ms)");
+			} catch (Exception e) {
+				e.printStackTrace();
+				failed++;
+			}
+		}
+		if (rawFiles.isEmpty())
+			System.err.println("no raw files found");
+		return rawFiles.isEmpty() ? failed + 1 : failed;
+	}
+
+	private int countExisting() {
+		int existing = 0;
+		for (String argument : arguments)
+			if (new File(argument).exists())
+				existing++;
+		return existing;
+	}
+
+	private void findRawFiles(File directory, List<File> rawFiles) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.isDirectory())
+				findRawFiles(file, rawFiles);
+			else if (file.getName().equals(RAW_FILE_NAME))
+				rawFiles.add(file);
+		}
+	}
+
+	private String getDeviceName(File rawFile) {
+		if (rawFile.getName().equals(RAW_FILE_NAME))
+			return rawFile.getAbsoluteFile().getParentFile().getName();
+		String name = rawFile.getName();
+		return name.indexOf('.') > 0 ? name.substring(0, name.lastIndexOf('.')) : name;
+	}
+
+	private int merge() {
+		if (arguments.size() < 2) {
+			System.err.println("merge needs at least two reports");
+			return 1;
+		}
+		for (String argument : arguments) {
+			if (!new File(argument).isFile()) {
+				System.err.println(argument + ": no such file");
+				return 1;
+			}
+		}
+		File output = new File(outputPath != null ? outputPath : new File(arguments.get(0)).getAbsoluteFile().getParent());
+		output.mkdirs();
+		try {
+			Merger merger = new Merger();
+			merger.setFiles(arguments);
+			merger.setPath(output.getAbsolutePath());
+			merger.startMerging();
+			System.out.println("merged into " + output.getPath());
+			return 0;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 1;
+		}
+	}
+
+	/*
+	 * Counts the devices or suites that failed; a configuration that failed
+	 * before anything was deployed counts as one failure.
+	 */
+	private int deploy() {
+		if (username == null || ansiblePath == null || dockerPath == null || outputPath == null) {
+			System.err.println("deploy needs -user, -ansible, -docker and -output");
+			return 1;
+		}
+		if (testingTypes.size() > 1 && arguments.size() > 1) {
+			System.err.println("a matrix of test suites runs on a single host");
+			return 1;
+		}
+		if (testingTypes.isEmpty())
+			testingTypes.add("All Tests");
+		MainController controller = new MainController();
+		if (!controller.controlAnsibleFiles(new File(ansiblePath))) {
+			System.err.println(ansiblePath + ": no Ansible files");
+			return 1;
+		}
+		if (!controller.controlDockerFiles(new File(dockerPath))) {
+			System.err.println(dockerPath + ": no Dockerfile");
+			return 1;
+		}
+		String password = readPassword();
+		if (password == null) {
+			System.err.println("no password on the console or in OPCUA_PASSWORD");
+			return 1;
+		}
+		File output = new File(outputPath);
+		output.mkdirs();
+		controller.setUsername(username);
+		controller.setPassword(password);
+		controller.setAnsibleFilePath(new File(ansiblePath));
+		controller.setDockerFilePath(new File(dockerPath));
+		controller.setOutputFilePath(output);
+		controller.setDeploymentType(true);
+		Map<?, Boolean> results;
+		if (testingTypes.size() > 1) {
+			controller.setConnectionAddress(arguments.get(0));
+			if (!controller.checkConnection()) {
+				System.err.println(arguments.get(0) + ": connection failed");
+				return 1;
+			}
+			controller.setHasAnsibleFile(true);
+			controller.setHasDockerFile(true);
+			results = controller.startMatrixDeployment(testingTypes).join();
+		} else {
+			List<DeviceTarget> targets = new ArrayList<>();
+			for (String host : arguments)
+				targets.add(new DeviceTarget(host, password));
+			results = controller.startFleetDeployment(targets, testingTypes.get(0)).join();
+		}
+		if (results.isEmpty())
+			return 1;
+		int failed = 0;
+		for (boolean passed : results.values())
+			if (!passed)
+				failed++;
+		return failed;
+	}
+
+	private String readPassword() {
+		Console console = System.console();
+		if (console != null) {
+			char[] password = console.readPassword("password for %s: ", username);
+			return password != null ? new String(password) : null;
+		}
+		return System.getenv("OPCUA_PASSWORD");
+	}
+}
@@ -5,6 +5,10 @@ import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
@@ -29,6 +33,7 @@ import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import java.awt.Font;
 
 public class Gui extends JFrame {
@@ -257,18 +262,29 @@ public class Gui extends JFrame {
 				if (outputPathDeployable.getText().isEmpty() || outputPathDeployable.getText().equals("")) {
 					JOptionPane.showMessageDialog(mainFrame, "Please Select Output Path");
 				} else {
-					controller.setTestingType(String.valueOf(testTypeBox.getSelectedItem()));
-					if (controller.startConfiguration()) {
-						chckbxDeploymentOfAnsible.setSelected(true);
-						chckbxDeploymentOfDocker.setSelected(true);
-
-					}
-					if (chckbxDeploymentOfAnsible.isSelected() && chckbxDeploymentOfDocker.isSelected()) {
-						JOptionPane.showMessageDialog(mainFrame, "Deployment Started");
-						controller.setDeploymentType(true);
-						controller.startDeployment(testTypeBox.getSelectedItem().toString());
-
-					}
+					String selectedTestType = String.valueOf(testTypeBox.getSelectedItem());
+					controller.setTestingType(selectedTestType);
+					btnStartTestingDeployable.setEnabled(false);
+					controller.startConfigurationAsync().thenAcceptAsync(new Consumer<Boolean>() {
+						public void accept(Boolean configured) {
+							btnStartTestingDeployable.setEnabled(true);
+							if (configured) {
+								chckbxDeploymentOfAnsible.setSelected(true);
+								chckbxDeploymentOfDocker.setSelected(true);
+
+							}
+							if (chckbxDeploymentOfAnsible.isSelected() && chckbxDeploymentOfDocker.isSelected()) {
+								JOptionPane.showMessageDialog(mainFrame, "Deployment Started");
+								controller.setDeploymentType(true);
+								controller.startDeployment(selectedTestType);
+
+							}
+						}
+					}, new Executor() {
+						public void execute(Runnable runnable) {
+							SwingUtilities.invokeLater(runnable);
+						}
+					});
 				}
 
 			}
@@ -310,6 +326,9 @@ public class Gui extends JFrame {
 		JComboBox<String> reportTypeBoxDeployable = new JComboBox<String>();
 		reportTypeBoxDeployable.addItem(".pdf");
 		reportTypeBoxDeployable.addItem(".csv");
+		reportTypeBoxDeployable.addItem(".xml");
+		reportTypeBoxDeployable.addItem(".xlsx-single");
+		reportTypeBoxDeployable.addItem(".xlsx-multiple");
 
 		JButton getReportDeployable = new JButton("Get Report");
 		getReportDeployable.setFont(new Font("Tahoma", Font.PLAIN, 14));
@@ -673,6 +692,9 @@ public class Gui extends JFrame {
 		JComboBox<String> outputTypeNonDeployable = new JComboBox<String>();
 		outputTypeNonDeployable.addItem(".pdf");
 		outputTypeNonDeployable.addItem(".csv");
+		outputTypeNonDeployable.addItem(".xml");
+		outputTypeNonDeployable.addItem(".xlsx-single");
+		outputTypeNonDeployable.addItem(".xlsx-multiple");
 
 		JLabel lblOutputType = new JLabel("Output Type");
 		lblOutputType.setFont(new Font("Tahoma", Font.PLAIN, 14));
@@ -741,8 +763,7 @@ public class Gui extends JFrame {
 					controller.setDeploymentType(false);
 					MakefileDeployer makefileDeployer = new MakefileDeployer(makeFileDirectoryField.getText(),
 							additionalParameters.getText(), String.valueOf(availableDevicesBox.getSelectedItem()),String.valueOf(testTypeBoxNonDeployable.getSelectedItem()));
-					makefileDeployer.startDeployment();
-					makefileDeployer.startTesting(clientFilesNonDeployablePath.getText().toString(), outputPathNonDeployable.getText().toString());
+					controller.startRestrictedDeployment(makefileDeployer, clientFilesNonDeployablePath.getText().toString(), outputPathNonDeployable.getText().toString());
 					
 
 				}
@@ -933,15 +954,19 @@ public class Gui extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				JFileChooser fileChooser = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+				fileChooser.setMultiSelectionEnabled(true);
 				int returnValue = fileChooser.showOpenDialog(null);
 
 				if (returnValue == JFileChooser.APPROVE_OPTION) {
-					File selectedFile = fileChooser.getSelectedFile();
-					if (!controller.checkFileExtension(selectedFile, ".pdf")) {
-						JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf File ");
-						return;
+					List<String> selectedPaths = new ArrayList<>();
+					for (File selectedFile : fileChooser.getSelectedFiles()) {
+						if (!controller.checkFileExtension(selectedFile, ".pdf")) {
+							JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf File ");
+							return;
+						}
+						selectedPaths.add(selectedFile.getAbsolutePath());
 					}
-					secondPDFField.setText(selectedFile.getAbsolutePath());
+					secondPDFField.setText(String.join(File.pathSeparator, selectedPaths));
 				}
 
 			}
@@ -956,15 +981,19 @@ public class Gui extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				JFileChooser fileChooser = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+				fileChooser.setMultiSelectionEnabled(true);
 				int returnValue = fileChooser.showOpenDialog(null);
 
 				if (returnValue == JFileChooser.APPROVE_OPTION) {
-					File selectedFile = fileChooser.getSelectedFile();
-					if (!controller.checkFileExtension(selectedFile, ".pdf")) {
-						JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf File ");
-						return;
+					List<String> selectedPaths = new ArrayList<>();
+					for (File selectedFile : fileChooser.getSelectedFiles()) {
+						if (!controller.checkFileExtension(selectedFile, ".pdf")) {
+							JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf File ");
+							return;
+						}
+						selectedPaths.add(selectedFile.getAbsolutePath());
 					}
-					firstPDFField.setText(selectedFile.getAbsolutePath());
+					firstPDFField.setText(String.join(File.pathSeparator, selectedPaths));
 				}
 
 			}
@@ -982,15 +1011,19 @@ public class Gui extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				JFileChooser fileChooser = new JFileChooser(FileSystemView.getFileSystemView().getHomeDirectory());
+				fileChooser.setMultiSelectionEnabled(true);
 				int returnValue = fileChooser.showOpenDialog(null);
 
 				if (returnValue == JFileChooser.APPROVE_OPTION) {
-					File selectedFile = fileChooser.getSelectedFile();
-					if (!controller.checkFileExtension(selectedFile, ".pdf")) {
-						JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf File ");
-						return;
+					List<String> selectedPaths = new ArrayList<>();
+					for (File selectedFile : fileChooser.getSelectedFiles()) {
+						if (!controller.checkFileExtension(selectedFile, ".pdf")) {
+							JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf File ");
+							return;
+						}
+						selectedPaths.add(selectedFile.getAbsolutePath());
 					}
-					thirdPDFField.setText(selectedFile.getAbsolutePath());
+					thirdPDFField.setText(String.join(File.pathSeparator, selectedPaths));
 				}
 
 			}
@@ -1003,16 +1036,20 @@ public class Gui extends JFrame {
 		btnMerge.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 
-				if ((firstPDFField.getText().equals("") && secondPDFField.getText().equals(""))
-						|| (firstPDFField.getText().equals("") && thirdPDFField.getText().equals(""))
-						|| (thirdPDFField.getText().equals("") && secondPDFField.getText().equals(""))) {
+				// every field may hold several reports chosen at once
+				List<String> files = new ArrayList<>();
+				for (JTextField field : new JTextField[] { firstPDFField, secondPDFField, thirdPDFField })
+					for (String file : field.getText().split(File.pathSeparator))
+						if (!file.trim().equals(""))
+							files.add(file.trim());
+				if (files.size() < 2) {
 
 					JOptionPane.showMessageDialog(mainFrame, "Please Select a Pdf Files to Merge ");
 					return;
 
 				}
 
-				controller.startMerging(firstPDFField.getText(), secondPDFField.getText(), thirdPDFField.getText());
+				controller.startMerging(files);
 			}
 		});
 